@@ -30,6 +30,9 @@ public class NodeInfo {
 
   private Map<String, String> cheatWitnessInfoMap = new HashMap<>();
 
+  /*keys per store, only the stores whose count is known*/
+  private Map<String, Long> storeKeyCountMap = new HashMap<>();
+
   public static class MachineInfo {
 
     /*machine information*/
@@ -608,6 +611,15 @@ public class NodeInfo {
     return this;
   }
 
+  public Map<String, Long> getStoreKeyCountMap() {
+    return storeKeyCountMap;
+  }
+
+  public NodeInfo setStoreKeyCountMap(Map<String, Long> storeKeyCountMap) {
+    this.storeKeyCountMap = storeKeyCountMap;
+    return this;
+  }
+
   public Protocol.NodeInfo transferToProtoEntity() {
     Protocol.NodeInfo.Builder builder = Protocol.NodeInfo.newBuilder();
     builder.setBeginSyncNum(getBeginSyncNum());
@@ -618,6 +630,7 @@ public class NodeInfo {
     builder.setPassiveConnectCount(getPassiveConnectCount());
     builder.setTotalFlow(getTotalFlow());
     builder.putAllCheatWitnessInfoMap(getCheatWitnessInfoMap());
+    builder.putAllStoreKeyCountMap(getStoreKeyCountMap());
     for (PeerInfo peerInfo : getPeerList()) {
       Protocol.NodeInfo.PeerInfo.Builder peerInfoBuilder = Protocol.NodeInfo.PeerInfo.newBuilder();
       peerInfoBuilder.setLastSyncBlock(peerInfo.getLastSyncBlock());
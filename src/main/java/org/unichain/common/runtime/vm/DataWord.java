@@ -260,7 +260,11 @@ public class DataWord implements Comparable<DataWord> {
       this.data = ByteUtil.copyToArray(MAX_VALUE);
       return;
     }
-    this.data = ByteUtil.copyToArray(MAX_VALUE.subtract(this.value()));
+    byte[] result = new byte[WORD_SIZE];
+    for (int i = 0; i < WORD_SIZE; i++) {
+      result[i] = (byte) ~this.data[i];
+    }
+    this.data = result;
   }
 
   // By   : Holger
@@ -281,15 +285,10 @@ public class DataWord implements Comparable<DataWord> {
     this.data = ByteUtil.copyToArray(result.and(MAX_VALUE));
   }
 
-  // TODO: mul can be done in more efficient way
-  // TODO:     with shift left shift right trick
-  // TODO      without BigInteger quick hack
   public void mul(DataWord word) {
-    BigInteger result = value().multiply(word.value());
-    this.data = ByteUtil.copyToArray(result.and(MAX_VALUE));
+    this.data = WordMath.toBytes(WordMath.mul(WordMath.toInts(data), WordMath.toInts(word.data)));
   }
 
-  // TODO: improve with no BigInteger
   public void div(DataWord word) {
 
     if (word.isZero()) {
@@ -297,11 +296,10 @@ public class DataWord implements Comparable<DataWord> {
       return;
     }
 
-    BigInteger result = value().divide(word.value());
-    this.data = ByteUtil.copyToArray(result.and(MAX_VALUE));
+    this.data = WordMath.toBytes(
+        WordMath.divide(WordMath.toInts(data), WordMath.toInts(word.data), false));
   }
 
-  // TODO: improve with no BigInteger
   public void sDiv(DataWord word) {
 
     if (word.isZero()) {
@@ -309,14 +307,22 @@ public class DataWord implements Comparable<DataWord> {
       return;
     }
 
-    BigInteger result = sValue().divide(word.sValue());
-    this.data = ByteUtil.copyToArray(result.and(MAX_VALUE));
+    // truncated towards zero, on the magnitudes
+    int[] dividend = WordMath.toInts(data);
+    int[] divisor = WordMath.toInts(word.data);
+    boolean negative = WordMath.isNegative(dividend) != WordMath.isNegative(divisor);
+    if (WordMath.isNegative(dividend)) {
+      WordMath.negate(dividend);
+    }
+    if (WordMath.isNegative(divisor)) {
+      WordMath.negate(divisor);
+    }
+    int[] result = WordMath.divide(dividend, divisor, false);
+    this.data = WordMath.toBytes(negative ? WordMath.negate(result) : result);
   }
 
-  // TODO: improve with no BigInteger
   public void sub(DataWord word) {
-    BigInteger result = value().subtract(word.value());
-    this.data = ByteUtil.copyToArray(result.and(MAX_VALUE));
+    this.data = WordMath.toBytes(WordMath.sub(WordMath.toInts(data), WordMath.toInts(word.data)));
   }
 
   // TODO: improve with no BigInteger
@@ -325,7 +331,6 @@ public class DataWord implements Comparable<DataWord> {
     this.data = ByteUtil.copyToArray(result);
   }
 
-  // TODO: improve with no BigInteger
   public void mod(DataWord word) {
 
     if (word.isZero()) {
@@ -333,8 +338,8 @@ public class DataWord implements Comparable<DataWord> {
       return;
     }
 
-    BigInteger result = value().mod(word.value());
-    this.data = ByteUtil.copyToArray(result.and(MAX_VALUE));
+    this.data = WordMath.toBytes(
+        WordMath.divide(WordMath.toInts(data), WordMath.toInts(word.data), true));
   }
 
   public void sMod(DataWord word) {
@@ -344,10 +349,18 @@ public class DataWord implements Comparable<DataWord> {
       return;
     }
 
-    BigInteger result = sValue().abs().mod(word.sValue().abs());
-    result = (sValue().signum() == -1) ? result.negate() : result;
-
-    this.data = ByteUtil.copyToArray(result.and(MAX_VALUE));
+    // takes the sign of the dividend
+    int[] dividend = WordMath.toInts(data);
+    int[] divisor = WordMath.toInts(word.data);
+    boolean negative = WordMath.isNegative(dividend);
+    if (negative) {
+      WordMath.negate(dividend);
+    }
+    if (WordMath.isNegative(divisor)) {
+      WordMath.negate(divisor);
+    }
+    int[] result = WordMath.divide(dividend, divisor, true);
+    this.data = WordMath.toBytes(negative ? WordMath.negate(result) : result);
   }
 
   public void addmod(DataWord word1, DataWord word2) {
@@ -464,12 +477,12 @@ public class DataWord implements Comparable<DataWord> {
    * @return this << arg
    */
   public DataWord shiftLeft(DataWord arg) {
-    if (arg.value().compareTo(BigInteger.valueOf(MAX_POW)) >= 0) {
+    int bits = arg.shiftBits();
+    if (bits >= MAX_POW) {
       return DataWord.ZERO();
     }
 
-    BigInteger result = value().shiftLeft(arg.intValueSafe());
-    return new DataWord(ByteUtil.copyToArray(result.and(MAX_VALUE)));
+    return new DataWord(WordMath.toBytes(WordMath.shiftLeft(WordMath.toInts(data), bits)));
   }
 
   /**
@@ -478,12 +491,12 @@ public class DataWord implements Comparable<DataWord> {
    * @return this >> arg
    */
   public DataWord shiftRight(DataWord arg) {
-    if (arg.value().compareTo(BigInteger.valueOf(MAX_POW)) >= 0) {
+    int bits = arg.shiftBits();
+    if (bits >= MAX_POW) {
       return DataWord.ZERO();
     }
 
-    BigInteger result = value().shiftRight(arg.intValueSafe());
-    return new DataWord(ByteUtil.copyToArray(result.and(MAX_VALUE)));
+    return new DataWord(WordMath.toBytes(WordMath.shiftRight(WordMath.toInts(data), bits, false)));
   }
 
   /**
@@ -492,7 +505,8 @@ public class DataWord implements Comparable<DataWord> {
    * @return this >> arg
    */
   public DataWord shiftRightSigned(DataWord arg) {
-    if (arg.value().compareTo(BigInteger.valueOf(MAX_POW)) >= 0) {
+    int bits = arg.shiftBits();
+    if (bits >= MAX_POW) {
       if (this.isNegative()) {
         DataWord result = ONE();
         result.negate();
@@ -502,8 +516,20 @@ public class DataWord implements Comparable<DataWord> {
       }
     }
 
-    BigInteger result = sValue().shiftRight(arg.intValueSafe());
-    return new DataWord(ByteUtil.copyToArray(result.and(MAX_VALUE)));
+    return new DataWord(WordMath.toBytes(WordMath.shiftRight(WordMath.toInts(data), bits, true)));
+  }
+
+  /**
+   * @return this as a shift amount, MAX_POW for any value of at least MAX_POW
+   */
+  private int shiftBits() {
+    for (int i = 0; i < data.length - 2; i++) {
+      if (data[i] != 0) {
+        return MAX_POW;
+      }
+    }
+    return data.length < 2 ? 0 : Math.min(((data[data.length - 2] & 0xff) << 8)
+        | (data[data.length - 1] & 0xff), MAX_POW);
   }
 
   public static long sizeInWords(long bytesSize) {
@@ -1252,13 +1252,12 @@ public class VM {
         case PUSH30:
         case PUSH31:
         case PUSH32: {
-          program.step();
           int nPush = op.val() - PUSH1.val() + 1;
 
-          byte[] data = program.sweep(nPush);
+          DataWord data = program.pushImmediate(nPush);
 
           if (logger.isDebugEnabled()) {
-            hint = "" + Hex.toHexString(data);
+            hint = "" + Hex.toHexString(data.getData(), DataWord.WORD_SIZE - nPush, nPush);
           }
 
           program.stackPush(data);
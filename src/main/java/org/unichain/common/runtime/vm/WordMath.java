@@ -0,0 +1,229 @@
+package org.unichain.common.runtime.vm;
+
+/**
+ * Unsigned 256-bit arithmetic on eight 32-bit limbs, least significant first, for the
+ * {@link DataWord} operations that used to round trip through BigInteger.
+ *
+ * Results wrap modulo 2^256 like the BigInteger versions masked with MAX_VALUE. Division is
+ * Knuth's algorithm D, with a single limb divisor taking the short division path.
+ */
+final class WordMath {
+
+  static final int LIMBS = 8;
+  private static final long MASK = 0xffffffffL;
+
+  private WordMath() {
+  }
+
+  static int[] toInts(byte[] data) {
+    int[] x = new int[LIMBS];
+    // a word built from a null array is empty and reads as zero
+    if (data.length < DataWord.WORD_SIZE) {
+      return x;
+    }
+    for (int k = 0, off = DataWord.WORD_SIZE - 4; k < LIMBS; k++, off -= 4) {
+      x[k] = (data[off] << 24) | ((data[off + 1] & 0xff) << 16) | ((data[off + 2] & 0xff) << 8)
+          | (data[off + 3] & 0xff);
+    }
+    return x;
+  }
+
+  static byte[] toBytes(int[] x) {
+    byte[] data = new byte[DataWord.WORD_SIZE];
+    for (int k = 0, off = DataWord.WORD_SIZE - 4; k < LIMBS; k++, off -= 4) {
+      data[off] = (byte) (x[k] >>> 24);
+      data[off + 1] = (byte) (x[k] >>> 16);
+      data[off + 2] = (byte) (x[k] >>> 8);
+      data[off + 3] = (byte) x[k];
+    }
+    return data;
+  }
+
+  static boolean isZero(int[] x) {
+    for (int limb : x) {
+      if (limb != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  static boolean isNegative(int[] x) {
+    return x[LIMBS - 1] < 0;
+  }
+
+  /**
+   * Two's complement negation in place.
+   */
+  static int[] negate(int[] x) {
+    long carry = 1;
+    for (int k = 0; k < LIMBS; k++) {
+      long t = (~x[k] & MASK) + carry;
+      x[k] = (int) t;
+      carry = t >>> 32;
+    }
+    return x;
+  }
+
+  /**
+   * a - b, into a.
+   */
+  static int[] sub(int[] a, int[] b) {
+    long borrow = 0;
+    for (int k = 0; k < LIMBS; k++) {
+      long t = (a[k] & MASK) - (b[k] & MASK) - borrow;
+      a[k] = (int) t;
+      borrow = t >>> 63;
+    }
+    return a;
+  }
+
+  static int[] mul(int[] a, int[] b) {
+    int[] r = new int[LIMBS];
+    for (int i = 0; i < LIMBS; i++) {
+      long ai = a[i] & MASK;
+      if (ai == 0) {
+        continue;
+      }
+      long carry = 0;
+      for (int j = 0; i + j < LIMBS; j++) {
+        long t = ai * (b[j] & MASK) + (r[i + j] & MASK) + carry;
+        r[i + j] = (int) t;
+        carry = t >>> 32;
+      }
+    }
+    return r;
+  }
+
+  /**
+   * @param v non zero divisor
+   * @return u / v, or u % v when {@code remainder} is set
+   */
+  static int[] divide(int[] u, int[] v, boolean remainder) {
+    int m = significant(u);
+    int n = significant(v);
+    if (m < n) {
+      return remainder ? u.clone() : new int[LIMBS];
+    }
+
+    int[] q = new int[LIMBS];
+    if (n == 1) {
+      long d = v[0] & MASK;
+      long r = 0;
+      for (int k = m - 1; k >= 0; k--) {
+        long num = (r << 32) | (u[k] & MASK);
+        q[k] = (int) Long.divideUnsigned(num, d);
+        r = Long.remainderUnsigned(num, d);
+      }
+      if (remainder) {
+        int[] ret = new int[LIMBS];
+        ret[0] = (int) r;
+        return ret;
+      }
+      return q;
+    }
+
+    // normalize so the top limb of the divisor has its high bit set
+    int s = Integer.numberOfLeadingZeros(v[n - 1]);
+    int[] vn = new int[n];
+    for (int i = n - 1; i > 0; i--) {
+      vn[i] = (v[i] << s) | (s == 0 ? 0 : v[i - 1] >>> (32 - s));
+    }
+    vn[0] = v[0] << s;
+    int[] un = new int[m + 1];
+    un[m] = s == 0 ? 0 : u[m - 1] >>> (32 - s);
+    for (int i = m - 1; i > 0; i--) {
+      un[i] = (u[i] << s) | (s == 0 ? 0 : u[i - 1] >>> (32 - s));
+    }
+    un[0] = u[0] << s;
+
+    long vTop = vn[n - 1] & MASK;
+    long vNext = vn[n - 2] & MASK;
+    for (int j = m - n; j >= 0; j--) {
+      long num = ((un[j + n] & MASK) << 32) | (un[j + n - 1] & MASK);
+      long qhat = Long.divideUnsigned(num, vTop);
+      long rhat = num - qhat * vTop;
+      while (qhat > MASK
+          || Long.compareUnsigned(qhat * vNext, (rhat << 32) | (un[j + n - 2] & MASK)) > 0) {
+        qhat--;
+        rhat += vTop;
+        if (rhat > MASK) {
+          break;
+        }
+      }
+
+      long borrow = 0;
+      long t;
+      for (int i = 0; i < n; i++) {
+        long p = qhat * (vn[i] & MASK);
+        t = (un[i + j] & MASK) - borrow - (p & MASK);
+        un[i + j] = (int) t;
+        borrow = (p >>> 32) - (t >> 32);
+      }
+      t = (un[j + n] & MASK) - borrow;
+      un[j + n] = (int) t;
+
+      q[j] = (int) qhat;
+      if (t < 0) {
+        // qhat was one too large, add the divisor back
+        q[j]--;
+        long carry = 0;
+        for (int i = 0; i < n; i++) {
+          t = (un[i + j] & MASK) + (vn[i] & MASK) + carry;
+          un[i + j] = (int) t;
+          carry = t >>> 32;
+        }
+        un[j + n] += (int) carry;
+      }
+    }
+
+    if (!remainder) {
+      return q;
+    }
+    int[] r = new int[LIMBS];
+    for (int i = 0; i < n; i++) {
+      r[i] = (un[i] >>> s) | (s == 0 ? 0 : un[i + 1] << (32 - s));
+    }
+    return r;
+  }
+
+  /**
+   * @param bits in [0, 256)
+   */
+  static int[] shiftLeft(int[] x, int bits) {
+    int[] r = new int[LIMBS];
+    int limbs = bits >>> 5;
+    int s = bits & 31;
+    for (int k = LIMBS - 1; k >= limbs; k--) {
+      int lo = k - limbs - 1 >= 0 ? x[k - limbs - 1] : 0;
+      r[k] = (x[k - limbs] << s) | (s == 0 ? 0 : lo >>> (32 - s));
+    }
+    return r;
+  }
+
+  /**
+   * @param bits in [0, 256)
+   * @param signed fill with the sign bit instead of zeros
+   */
+  static int[] shiftRight(int[] x, int bits, boolean signed) {
+    int fill = signed && isNegative(x) ? -1 : 0;
+    int[] r = new int[LIMBS];
+    int limbs = bits >>> 5;
+    int s = bits & 31;
+    for (int k = 0; k < LIMBS; k++) {
+      int src = k + limbs;
+      int cur = src < LIMBS ? x[src] : fill;
+      int hi = src + 1 < LIMBS ? x[src + 1] : fill;
+      r[k] = (cur >>> s) | (s == 0 ? 0 : hi << (32 - s));
+    }
+    return r;
+  }
+
+  private static int significant(int[] x) {
+    int n = LIMBS;
+    while (n > 0 && x[n - 1] == 0) {
+      n--;
+    }
+    return n;
+  }
+}
@@ -21,7 +21,7 @@ import org.unichain.common.runtime.vm.DataWord;
 import org.unichain.common.runtime.vm.program.listener.ProgramListener;
 import org.unichain.common.runtime.vm.program.listener.ProgramListenerAware;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 
 import static java.lang.Math.ceil;
@@ -35,7 +35,8 @@ public class Memory implements ProgramListenerAware {
   private static final int CHUNK_SIZE = 1024;
   private static final int WORD_SIZE = 32;
 
-  private List<byte[]> chunks = new LinkedList<>();
+  // indexed on every read and write, a linked list made high addresses walk the whole memory
+  private List<byte[]> chunks = new ArrayList<>();
   private int softSize;
   private ProgramListener programListener;
 
@@ -196,7 +197,7 @@ public class Memory implements ProgramListenerAware {
   }
 
   public List<byte[]> getChunks() {
-    return new LinkedList<>(chunks);
+    return new ArrayList<>(chunks);
   }
 
   private int captureMax(int chunkIndex, int chunkOffset, int size, byte[] src, int srcPos) {
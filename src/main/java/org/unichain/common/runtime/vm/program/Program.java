@@ -154,7 +154,7 @@ public class Program {
 
   public ProgramPrecompile getProgramPrecompile() {
     if (programPrecompile == null) {
-      programPrecompile = ProgramPrecompile.compile(ops);
+      programPrecompile = ProgramPrecompile.getOrCompile(ops);
     }
     return programPrecompile;
   }
@@ -280,18 +280,36 @@ public class Program {
   }
 
   public byte[] sweep(int n) {
+    byte[] data = Arrays.copyOfRange(ops, pc, pc + n);
+    skip(n);
+    return data;
+  }
 
+  private void skip(int n) {
     if (pc + n > ops.length) {
       stop();
     }
 
-    byte[] data = Arrays.copyOfRange(ops, pc, pc + n);
     pc += n;
     if (pc >= ops.length) {
       stop();
     }
+  }
 
-    return data;
+  /**
+   * Step over the PUSH instruction at pc and its immediate, taken from the code analysis.
+   *
+   * @param n size of the immediate
+   * @return the immediate as a word
+   */
+  public DataWord pushImmediate(int n) {
+    byte[] word = getProgramPrecompile().getPushWord(pc);
+    step();
+    if (word == null) {
+      return new DataWord(sweep(n));
+    }
+    skip(n);
+    return new DataWord(word);
   }
 
   public DataWord stackPop() {
@@ -17,13 +17,20 @@
  */
 package org.unichain.common.runtime.vm.program;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
 import lombok.extern.slf4j.Slf4j;
 import org.unichain.common.runtime.config.VMConfig;
 import org.unichain.common.runtime.vm.DataWord;
 import org.unichain.common.runtime.vm.OpCode;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 @Slf4j(topic = "VM")
@@ -32,10 +39,118 @@ import java.util.Set;
  */
 public class ProgramPrecompile {
 
-  private Set<Integer> jumpdest = new HashSet<>();
+  // bytes of code and analysis kept
+  private static final long MAX_CACHED_BYTES = 64L * 1024 * 1024;
+  // keyed per process, so nobody can deploy code that lands in a chosen bucket
+  private static final HashFunction CODE_HASH = Hashing.sipHash24(
+      new SecureRandom().nextLong(), new SecureRandom().nextLong());
+  private static final long REPORT_INTERVAL_MS = 60_000L;
+  private static final int MAX_CACHED_ARRAYS = 4096;
+
+  /**
+   * Analysed code shared by every program running it. Keyed by the code itself rather than its
+   * hash: the stored code hash is whatever the deployer sent for contracts created before
+   * Constantinople.
+   */
+  private static final Cache<CodeKey, ProgramPrecompile> CACHE = CacheBuilder.newBuilder()
+      .maximumWeight(MAX_CACHED_BYTES)
+      .weigher((CodeKey key, ProgramPrecompile value) -> key.code.length + value.weight())
+      .recordStats()
+      .build();
+  /**
+   * The same analysis by code array, compared by identity. A deposit hands out the same array
+   * every time the code of an address is read from it, so calls repeated from one frame skip
+   * hashing and comparing the code. Code arrays are never written once loaded.
+   */
+  private static final Cache<byte[], ProgramPrecompile> BY_ARRAY = CacheBuilder.newBuilder()
+      .weakKeys()
+      .maximumSize(MAX_CACHED_ARRAYS)
+      .recordStats()
+      .build();
+  private static final AtomicLong lastReport = new AtomicLong(System.currentTimeMillis());
+
+  private final BitSet jumpdest = new BitSet();
+  // bit per pc, set for a PUSH instruction
+  private long[] pushes;
+  // by block of 64 pcs, the number of PUSH instructions before it
+  private int[] pushRank;
+  // the immediates of the PUSH instructions one after another, cut ones filled with zeros
+  private byte[] pushData;
+  // by ordinal of the PUSH instruction, where its immediate starts in pushData, then the end
+  private int[] pushOffset;
+
+  /**
+   * Code compared in full, hashed over all of it with a keyed hash.
+   */
+  private static final class CodeKey {
+
+    private final byte[] code;
+    private final int hash;
+
+    private CodeKey(byte[] code) {
+      this(code, CODE_HASH.hashBytes(code).asInt());
+    }
+
+    private CodeKey(byte[] code, int hash) {
+      this.code = code;
+      this.hash = hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof CodeKey && hash == ((CodeKey) o).hash
+          && Arrays.equals(code, ((CodeKey) o).code);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  /**
+   * @return the analysis of the code, shared with the programs running the same code
+   */
+  public static ProgramPrecompile getOrCompile(byte[] ops) {
+    report();
+    ProgramPrecompile ret = BY_ARRAY.getIfPresent(ops);
+    if (ret != null) {
+      return ret;
+    }
+    CodeKey key = new CodeKey(ops);
+    ret = CACHE.getIfPresent(key);
+    if (ret == null) {
+      ret = compile(ops);
+      // the cached key must not see later changes to the caller's array
+      CACHE.put(new CodeKey(ops.clone(), key.hash), ret);
+    }
+    BY_ARRAY.put(ops, ret);
+    return ret;
+  }
+
+  public static CacheStats getCacheStats() {
+    return CACHE.stats();
+  }
+
+  private static void report() {
+    long now = System.currentTimeMillis();
+    long last = lastReport.get();
+    if (now - last < REPORT_INTERVAL_MS || !lastReport.compareAndSet(last, now)) {
+      return;
+    }
+    CacheStats stats = CACHE.stats();
+    logger.info("code analysis cache size:{}, hits:{}, misses:{}, hit rate:{}, evictions:{}, "
+            + "same array hits:{}", CACHE.size(), stats.hitCount(), stats.missCount(),
+        String.format("%.3f", stats.hitRate()), stats.evictionCount(), BY_ARRAY.stats().hitCount());
+  }
 
   public static ProgramPrecompile compile(byte[] ops) {
     ProgramPrecompile ret = new ProgramPrecompile();
+    BitSet pushes = new BitSet(ops.length);
+    byte[] data = new byte[Math.max(ops.length, DataWord.WORD_SIZE)];
+    int size = 0;
+    int[] offsets = new int[16];
+    int count = 0;
     for (int i = 0; i < ops.length; ++i) {
 
       OpCode op = OpCode.code(ops[i]);
@@ -45,13 +160,34 @@ public class ProgramPrecompile {
 
       if (op.equals(OpCode.JUMPDEST)) {
         logger.debug("JUMPDEST:" + i);
-        ret.jumpdest.add(i);
+        ret.jumpdest.set(i);
       }
 
       if (op.asInt() >= OpCode.PUSH1.asInt() && op.asInt() <= OpCode.PUSH32.asInt()) {
-        i += op.asInt() - OpCode.PUSH1.asInt() + 1;
+        int n = op.asInt() - OpCode.PUSH1.asInt() + 1;
+        if (count + 1 == offsets.length) {
+          offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+        if (size + n > data.length) {
+          data = Arrays.copyOf(data, data.length * 2);
+        }
+        pushes.set(i);
+        offsets[count++] = size;
+        // immediates cut by the end of the code read as zeros on the right, like Program.sweep
+        System.arraycopy(ops, i + 1, data, size, Math.max(Math.min(n, ops.length - i - 1), 0));
+        size += n;
+        i += n;
       }
     }
+    ret.pushes = pushes.toLongArray();
+    ret.pushRank = new int[ret.pushes.length];
+    for (int k = 0, rank = 0; k < ret.pushes.length; k++) {
+      ret.pushRank[k] = rank;
+      rank += Long.bitCount(ret.pushes[k]);
+    }
+    offsets[count] = size;
+    ret.pushOffset = Arrays.copyOf(offsets, count + 1);
+    ret.pushData = Arrays.copyOf(data, size);
     return ret;
   }
 
@@ -88,7 +224,29 @@ public class ProgramPrecompile {
     }
   }
 
+  /**
+   * @return a fresh word holding the immediate of the PUSH instruction at pc, null if there is
+   * none there
+   */
+  public byte[] getPushWord(int pc) {
+    int block = pc >>> 6;
+    if (pc < 0 || block >= pushes.length || (pushes[block] & 1L << pc) == 0) {
+      return null;
+    }
+    int ordinal = pushRank[block] + Long.bitCount(pushes[block] & (1L << pc) - 1);
+    int start = pushOffset[ordinal];
+    int n = pushOffset[ordinal + 1] - start;
+    byte[] word = new byte[DataWord.WORD_SIZE];
+    System.arraycopy(pushData, start, word, DataWord.WORD_SIZE - n, n);
+    return word;
+  }
+
+  private int weight() {
+    return pushes.length * Long.BYTES + pushRank.length * Integer.BYTES + pushData.length
+        + pushOffset.length * Integer.BYTES + jumpdest.size() / Byte.SIZE;
+  }
+
   public boolean hasJumpDest(int pc) {
-    return jumpdest.contains(pc);
+    return pc >= 0 && jumpdest.get(pc);
   }
 }
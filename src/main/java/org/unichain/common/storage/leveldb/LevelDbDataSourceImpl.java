@@ -521,6 +521,13 @@ public class LevelDbDataSourceImpl implements DbSourceInter<byte[]>,
     return new StoreIterator(database.iterator());
   }
 
+  /**
+   * Iterate in key order starting at the first key >= from.
+   */
+  public org.unichain.core.db.common.iterator.DBIterator iterator(byte[] from) {
+    return new StoreIterator(database.iterator(), from);
+  }
+
   public Stream<Entry<byte[], byte[]>> stream() {
     return StreamSupport.stream(spliterator(), false);
   }
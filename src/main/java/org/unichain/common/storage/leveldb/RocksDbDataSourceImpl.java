@@ -320,6 +320,13 @@ public class RocksDbDataSourceImpl implements DbSourceInter<byte[]>,
     return new RockStoreIterator(database.newIterator());
   }
 
+  /**
+   * Iterate in key order starting at the first key >= from.
+   */
+  public org.unichain.core.db.common.iterator.DBIterator iterator(byte[] from) {
+    return new RockStoreIterator(database.newIterator(), from);
+  }
+
   private void updateByBatchInner(Map<byte[], byte[]> rows) throws Exception {
     if (quitIfNotAlive()) {
       return;
@@ -0,0 +1,77 @@
+package org.unichain.common.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free latency histogram with power of two microsecond buckets.
+ *
+ * Bucket i counts samples below 2^i us, the last bucket everything above ~67s. Percentiles are
+ * reported as the bucket upper bound, which is precise enough to tell stages apart.
+ */
+public class LatencyHistogram {
+
+  private static final int BUCKETS = 27;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong totalMicros = new AtomicLong();
+  private final AtomicLong maxMicros = new AtomicLong();
+
+  public void record(long nanos) {
+    long micros = Math.max(nanos / 1000, 0);
+    int bucket = Math.min(64 - Long.numberOfLeadingZeros(micros), BUCKETS - 1);
+    buckets.incrementAndGet(bucket);
+    count.incrementAndGet();
+    totalMicros.addAndGet(micros);
+    maxMicros.accumulateAndGet(micros, Math::max);
+  }
+
+  public long getCount() {
+    return count.get();
+  }
+
+  public long getMeanMicros() {
+    long n = count.get();
+    return n == 0 ? 0 : totalMicros.get() / n;
+  }
+
+  public long getMaxMicros() {
+    return maxMicros.get();
+  }
+
+  /**
+   * @param quantile in (0, 1]
+   * @return upper bound in microseconds of the bucket holding the quantile
+   */
+  public long percentileMicros(double quantile) {
+    long n = count.get();
+    if (n == 0) {
+      return 0;
+    }
+    long rank = (long) Math.ceil(quantile * n);
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += buckets.get(i);
+      if (seen >= rank) {
+        return Math.min(1L << i, maxMicros.get());
+      }
+    }
+    return maxMicros.get();
+  }
+
+  public void reset() {
+    for (int i = 0; i < BUCKETS; i++) {
+      buckets.set(i, 0);
+    }
+    count.set(0);
+    totalMicros.set(0);
+    maxMicros.set(0);
+  }
+
+  @Override
+  public String toString() {
+    return "count:" + getCount() + ", mean:" + getMeanMicros() + "us, p50:" + percentileMicros(0.5)
+        + "us, p99:" + percentileMicros(0.99) + "us, max:" + getMaxMicros() + "us";
+  }
+}
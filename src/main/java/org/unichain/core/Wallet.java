@@ -453,6 +453,13 @@ public class Wallet {
       return builder.setResult(false).setCode(response_code.TRANSACTION_EXPIRATION_ERROR)
           .setMessage(ByteString.copyFromUtf8("transaction expired"))
           .build();
+    } catch (TooManyPendingException e) {
+      logger.warn("Broadcast transaction {} failed, {}.", tx.getTransactionId(), e.getMessage());
+      // not a verdict on the transaction, let the client retry it
+      dbManager.getTransactionIdCache().invalidate(tx.getTransactionId());
+      return builder.setResult(false).setCode(response_code.SERVER_BUSY)
+          .setMessage(ByteString.copyFromUtf8(e.getMessage()))
+          .build();
     } catch (Exception e) {
       logger.error("Broadcast transaction {} failed, {}.", tx.getTransactionId(), e.getMessage(), e);
       return builder.setResult(false).setCode(response_code.OTHER_ERROR)
@@ -18,7 +18,9 @@ package org.unichain.core.capsule;
 import com.google.common.primitives.Longs;
 import com.google.protobuf.ByteString;
 import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
+import javafx.util.Pair;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
@@ -40,8 +42,8 @@ import java.security.SignatureException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Vector;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Slf4j(topic = "capsule")
 public class BlockCapsule implements ProtoCapsule<Block> {
@@ -126,8 +128,18 @@ public class BlockCapsule implements ProtoCapsule<Block> {
   private BlockId blockId = new BlockId(Sha256Hash.ZERO_HASH, 0);
 
   private Block block;
+  // transactions appended by addTransaction are kept here until the block is read, so assembling
+  // a block copies the message once instead of once per transaction
+  private Block.Builder pending;
+  private int pendingSerializedSize;
   public boolean generatedByMyself = false;
   private List<TransactionCapsule> transactions = new ArrayList<>();
+  // header and the signer recovered from its witness signature, replaced together
+  private volatile Pair<BlockHeader, byte[]> witnessSigner;
+  // transaction list and its merkle root, the list is kept by header changes
+  private volatile Pair<List<Transaction>, Sha256Hash> merkleRoot;
+  // below this many transactions hashing the leaves on the fork join pool doesn't pay off
+  private static final int PARALLEL_MERKLE_LEAVES = 64;
 
   public BlockCapsule(int version, long number, Sha256Hash hash, long when, ByteString witnessAddress) {
     BlockHeader.raw.Builder blockHeaderRawBuild = BlockHeader.raw.newBuilder();
@@ -196,10 +208,30 @@ public class BlockCapsule implements ProtoCapsule<Block> {
   }
 
   public void addTransaction(TransactionCapsule pendingUnx) {
-    this.block = this.block.toBuilder().addTransactions(pendingUnx.getInstance()).build();
+    if (pending == null) {
+      pending = this.block.toBuilder();
+      pendingSerializedSize = this.block.getSerializedSize();
+    }
+    pending.addTransactions(pendingUnx.getInstance());
+    pendingSerializedSize += CodedOutputStream
+        .computeMessageSize(Block.TRANSACTIONS_FIELD_NUMBER, pendingUnx.getInstance());
     getTransactions().add(pendingUnx);
   }
 
+  /**
+   * Serialized size of the block including the appended transactions, without building it.
+   */
+  public int getSerializedSize() {
+    return pending == null ? this.block.getSerializedSize() : pendingSerializedSize;
+  }
+
+  private void buildPending() {
+    if (pending != null) {
+      this.block = pending.build();
+      pending = null;
+    }
+  }
+
   public List<TransactionCapsule> getTransactions() {
     return transactions;
   }
@@ -211,6 +243,7 @@ public class BlockCapsule implements ProtoCapsule<Block> {
   }
 
   public void sign(byte[] privateKey) {
+    buildPending();
     // TODO private_key == null
     ECKey ecKey = ECKey.fromPrivate(privateKey);
     ECDSASignature signature = ecKey.sign(getRawHash().getBytes());
@@ -226,9 +259,24 @@ public class BlockCapsule implements ProtoCapsule<Block> {
     return Sha256Hash.of(this.block.getBlockHeader().getRawData().toByteArray());
   }
 
+  /**
+   * Address recovered from the witness signature, kept as long as the header is unchanged.
+   */
+  public byte[] getWitnessSigner() throws SignatureException {
+    BlockHeader header = this.block.getBlockHeader();
+    Pair<BlockHeader, byte[]> cached = witnessSigner;
+    if (cached == null || cached.getKey() != header) {
+      byte[] signer = ECKey.signatureToAddress(Sha256Hash.hash(header.getRawData().toByteArray()),
+          TransactionCapsule.getBase64FromByteString(header.getWitnessSignature()));
+      cached = new Pair<>(header, signer);
+      witnessSigner = cached;
+    }
+    return cached.getValue();
+  }
+
   public boolean validateSignature(Manager dbManager) throws ValidateSignatureException {
     try {
-      byte[] sigAddress = ECKey.signatureToAddress(getRawHash().getBytes(), TransactionCapsule.getBase64FromByteString(block.getBlockHeader().getWitnessSignature()));
+      byte[] sigAddress = getWitnessSigner();
       byte[] witnessAccountAddress = block.getBlockHeader().getRawData().getWitnessAddress().toByteArray();
 
       if (dbManager.getDynamicPropertiesStore().getAllowMultiSign() != 1) {
@@ -255,22 +303,49 @@ public class BlockCapsule implements ProtoCapsule<Block> {
     return block.getBlockHeader().getRawData().getVersion();
   }
 
+  /**
+   * Merkle root of the transactions, cached until the transaction list changes.
+   */
   public Sha256Hash calcMerkleRoot() {
+    buildPending();
     List<Transaction> transactionsList = this.block.getTransactionsList();
 
     if (CollectionUtils.isEmpty(transactionsList)) {
       return Sha256Hash.ZERO_HASH;
     }
 
-    Vector<Sha256Hash> ids = transactionsList.stream()
-        .map(TransactionCapsule::new)
-        .map(TransactionCapsule::getMerkleHash)
-        .collect(Collectors.toCollection(Vector::new));
+    Pair<List<Transaction>, Sha256Hash> cached = merkleRoot;
+    if (cached != null && cached.getKey() == transactionsList) {
+      return cached.getValue();
+    }
+
+    byte[][] hashes = new byte[transactionsList.size()][];
+    IntStream range = IntStream.range(0, hashes.length);
+    if (hashes.length >= PARALLEL_MERKLE_LEAVES) {
+      range = range.parallel();
+    }
+    range.forEach(i -> hashes[i] = merkleLeaf(transactionsList, i).getBytes());
 
-    return MerkleTree.getInstance().createTree(ids).getRoot().getHash();
+    Sha256Hash root = MerkleTree.computeRoot(hashes);
+    merkleRoot = new Pair<>(transactionsList, root);
+    return root;
+  }
+
+  /**
+   * Reuse the hash cached by the transaction capsule while it still holds the block's message, the
+   * capsule may carry results added by the execution.
+   */
+  private Sha256Hash merkleLeaf(List<Transaction> transactionsList, int i) {
+    Transaction transaction = transactionsList.get(i);
+    if (transactions.size() == transactionsList.size()
+        && transactions.get(i).getInstance() == transaction) {
+      return transactions.get(i).getMerkleHash();
+    }
+    return Sha256Hash.of(transaction.toByteArray());
   }
 
   public void setMerkleRoot() {
+    buildPending();
     BlockHeader.raw blockHeaderRaw =
         this.block.getBlockHeader().getRawData().toBuilder()
             .setTxTrieRoot(calcMerkleRoot().getByteString()).build();
@@ -280,6 +355,7 @@ public class BlockCapsule implements ProtoCapsule<Block> {
   }
 
   public void setAccountStateRoot(byte[] root) {
+    buildPending();
     BlockHeader.raw blockHeaderRaw =
         this.block.getBlockHeader().getRawData().toBuilder()
             .setAccountStateRoot(ByteString.copyFrom(root)).build();
@@ -290,6 +366,7 @@ public class BlockCapsule implements ProtoCapsule<Block> {
 
   /* only for genisis */
   public void setWitness(String witness) {
+    buildPending();
     BlockHeader.raw blockHeaderRaw =
         this.block.getBlockHeader().getRawData().toBuilder().setWitnessAddress(
             ByteString.copyFrom(witness.getBytes())).build();
@@ -316,11 +393,13 @@ public class BlockCapsule implements ProtoCapsule<Block> {
 
   @Override
   public byte[] getData() {
+    buildPending();
     return this.block.toByteArray();
   }
 
   @Override
   public Block getInstance() {
+    buildPending();
     return this.block;
   }
 
@@ -32,6 +32,7 @@ import org.unichain.core.Wallet;
 import org.unichain.core.config.args.Args;
 import org.unichain.core.db.AccountStore;
 import org.unichain.core.db.Manager;
+import org.unichain.core.db.SignerCache;
 import org.unichain.core.db.TransactionTrace;
 import org.unichain.core.exception.*;
 import org.unichain.protos.Contract;
@@ -55,6 +56,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 import static org.unichain.core.config.Parameter.ChainConstant.*;
 import static org.unichain.core.exception.P2pException.TypeEnum.PROTOBUF_ERROR;
@@ -67,10 +69,50 @@ public class TransactionCapsule implements ProtoCapsule<Transaction> {
   @Setter
   private boolean isVerified = false;
 
+  /**
+   * Values derived from one proto message. A holder is only used while its source is still the
+   * current message, so a thread computing it from a message replaced meanwhile can't leave a
+   * stale value behind.
+   */
+  private static final class Derived<S> {
+
+    private final S source;
+    private final byte[] bytes;
+    private final Sha256Hash hash;
+
+    private Derived(S source, byte[] bytes, Sha256Hash hash) {
+      this.source = source;
+      this.bytes = bytes;
+      this.hash = hash;
+    }
+  }
+
+  // keyed by the raw data message, so the id survives adding a signature or a result
+  private volatile Derived<raw> rawHash;
+  // serialized transaction and its merkle hash, the hash is filled in on first use
+  private volatile Derived<Transaction> data;
+  private volatile Derived<Transaction> merkleHash;
+
+  // how many times rawHash was served without hashing, summed per block by the manager
+  @Getter
+  private int rawHashReuses;
+
+  private static final LongAdder rawHashNanos = new LongAdder();
+  private static final LongAdder rawHashCount = new LongAdder();
+
+  // whether the last signature check found the signers in the manager's SignerCache
+  @Getter
+  private boolean signersCached = false;
+
   @Setter
   @Getter
   private long blockNum = -1;
 
+  // when the transaction first entered the pending pool, kept while it is pushed again
+  @Setter
+  @Getter
+  private long pendingSince = 0;
+
   @Getter
   @Setter
   private TransactionTrace unxTrace;
@@ -167,13 +209,13 @@ public class TransactionCapsule implements ProtoCapsule<Transaction> {
 
   public void resetResult() {
     if (this.getInstance().getRetCount() > 0) {
-      this.transaction = this.getInstance().toBuilder().clearRet().build();
+      setInstance(this.getInstance().toBuilder().clearRet().build());
     }
   }
 
   public void setResult(TransactionResultCapsule transactionResultCapsule) {
-    this.transaction = this.getInstance().toBuilder().addRet(transactionResultCapsule.getInstance())
-        .build();
+    setInstance(this.getInstance().toBuilder().addRet(transactionResultCapsule.getInstance())
+        .build());
   }
 
   public void setReference(long blockNum, byte[] blockHash) {
@@ -182,7 +224,7 @@ public class TransactionCapsule implements ProtoCapsule<Transaction> {
         .setRefBlockHash(ByteString.copyFrom(ByteArray.subArray(blockHash, 8, 16)))
         .setRefBlockBytes(ByteString.copyFrom(ByteArray.subArray(refBlockNum, 6, 8)))
         .build();
-    this.transaction = this.transaction.toBuilder().setRawData(rawData).build();
+    setInstance(this.transaction.toBuilder().setRawData(rawData).build());
   }
 
   /**
@@ -191,7 +233,7 @@ public class TransactionCapsule implements ProtoCapsule<Transaction> {
   public void setExpiration(long expiration) {
     Transaction.raw rawData = this.transaction.getRawData().toBuilder().setExpiration(expiration)
         .build();
-    this.transaction = this.transaction.toBuilder().setRawData(rawData).build();
+    setInstance(this.transaction.toBuilder().setRawData(rawData).build());
   }
 
   public long getExpiration() {
@@ -202,7 +244,7 @@ public class TransactionCapsule implements ProtoCapsule<Transaction> {
     Transaction.raw rawData = this.transaction.getRawData().toBuilder()
         .setTimestamp(System.currentTimeMillis())
         .build();
-    this.transaction = this.transaction.toBuilder().setRawData(rawData).build();
+    setInstance(this.transaction.toBuilder().setRawData(rawData).build());
   }
 
   public long getTimestamp() {
@@ -226,23 +268,56 @@ public class TransactionCapsule implements ProtoCapsule<Transaction> {
     Transaction.raw.Builder transactionBuilder = Transaction.raw.newBuilder().addContract(
         Transaction.Contract.newBuilder().setType(contractType).setParameter(
             Any.pack(message)).build());
-    transaction = Transaction.newBuilder().setRawData(transactionBuilder.build()).build();
+    setInstance(Transaction.newBuilder().setRawData(transactionBuilder.build()).build());
   }
 
   public Sha256Hash getMerkleHash() {
-    byte[] transBytes = this.transaction.toByteArray();
-    return Sha256Hash.of(transBytes);
+    Transaction current = this.transaction;
+    Derived<Transaction> derived = merkleHash;
+    if (derived == null || derived.source != current) {
+      derived = new Derived<>(current, null, Sha256Hash.of(getData(current)));
+      merkleHash = derived;
+    }
+    return derived.hash;
   }
 
   private Sha256Hash getRawHash() {
-    return Sha256Hash.of(this.transaction.getRawData().toByteArray());
+    raw current = this.transaction.getRawData();
+    Derived<raw> derived = rawHash;
+    if (derived != null && derived.source == current) {
+      ++rawHashReuses;
+      return derived.hash;
+    }
+    long start = System.nanoTime();
+    derived = new Derived<>(current, null, Sha256Hash.of(current.toByteArray()));
+    rawHashNanos.add(System.nanoTime() - start);
+    rawHashCount.increment();
+    rawHash = derived;
+    return derived.hash;
+  }
+
+  /**
+   * @return average time to serialize and hash the raw data, to estimate what reuses save
+   */
+  public static long getAverageRawHashNanos() {
+    long n = rawHashCount.sum();
+    return n == 0 ? 0 : rawHashNanos.sum() / n;
+  }
+
+  /**
+   * Replace the proto, every mutation goes through here. Nothing is dropped: the derived values
+   * are checked against the message they came from on use, so the id stays valid while the raw
+   * data is the same message, as after adding a signature or a result.
+   */
+  private void setInstance(Transaction transaction) {
+    this.transaction = transaction;
   }
 
   public void sign(byte[] privateKey) {
     ECKey ecKey = ECKey.fromPrivate(privateKey);
     ECDSASignature signature = ecKey.sign(getRawHash().getBytes());
     ByteString sig = ByteString.copyFrom(signature.toByteArray());
-    this.transaction = this.transaction.toBuilder().addSignature(sig).build();
+    setInstance(this.transaction.toBuilder().addSignature(sig).build());
   }
 
   public static long getWeight(Permission permission, byte[] address) {
@@ -257,20 +332,38 @@ public class TransactionCapsule implements ProtoCapsule<Transaction> {
 
   public static long checkWeight(Permission permission, List<ByteString> sigs, byte[] hash, List<ByteString> approveList)
       throws SignatureException, PermissionException, SignatureFormatException {
-    long currentWeight = 0;
-    //    if (signature.size() % 65 != 0) {
-    //      throw new SignatureFormatException("Signature size is " + signature.size());
-    //    }
     if (sigs.size() > permission.getKeysCount()) {
       throw new PermissionException("Signature count is " + (sigs.size()) + " more than key counts of permission : " + permission.getKeysCount());
     }
-    HashMap addMap = new HashMap();
+    return checkWeight(permission, sigs, recoverSigners(sigs, hash), approveList);
+  }
+
+  public static List<byte[]> recoverSigners(List<ByteString> sigs, byte[] hash)
+      throws SignatureException, SignatureFormatException {
+    List<byte[]> signers = new ArrayList<>(sigs.size());
     for (ByteString sig : sigs) {
       if (sig.size() < 65) {
         throw new SignatureFormatException("Signature size is " + sig.size());
       }
+      signers.add(ECKey.signatureToAddress(hash, TransactionCapsule.getBase64FromByteString(sig)));
+    }
+    return signers;
+  }
+
+  /**
+   * @param signers addresses recovered from sigs, in the same order
+   */
+  private static long checkWeight(Permission permission, List<ByteString> sigs, List<byte[]> signers, List<ByteString> approveList)
+      throws PermissionException {
+    long currentWeight = 0;
+    if (sigs.size() > permission.getKeysCount()) {
+      throw new PermissionException("Signature count is " + (sigs.size()) + " more than key counts of permission : " + permission.getKeysCount());
+    }
+    HashMap addMap = new HashMap();
+    for (int i = 0; i < sigs.size(); i++) {
+      ByteString sig = sigs.get(i);
       String base64 = TransactionCapsule.getBase64FromByteString(sig);
-      byte[] address = ECKey.signatureToAddress(hash, base64);
+      byte[] address = signers.get(i);
       long weight = getWeight(permission, address);
       if (weight == 0) {
         throw new PermissionException(
@@ -324,7 +417,7 @@ public class TransactionCapsule implements ProtoCapsule<Transaction> {
     }
     ECDSASignature signature = ecKey.sign(getRawHash().getBytes());
     ByteString sig = ByteString.copyFrom(signature.toByteArray());
-    this.transaction = this.transaction.toBuilder().addSignature(sig).build();
+    setInstance(this.transaction.toBuilder().addSignature(sig).build());
   }
 
   /**
@@ -708,6 +801,14 @@ public class TransactionCapsule implements ProtoCapsule<Transaction> {
   public static boolean validateSignature(Transaction transaction,
       byte[] hash, Manager manager)
       throws PermissionException, SignatureException, SignatureFormatException {
+    return validateSignature(transaction, recoverSigners(transaction.getSignatureList(), hash), manager);
+  }
+
+  /**
+   * @param signers addresses recovered from the transaction signatures, in the same order
+   */
+  private static boolean validateSignature(Transaction transaction,
+      List<byte[]> signers, Manager manager) throws PermissionException {
     AccountStore accountStore = manager.getAccountStore();
     Transaction.Contract contract = transaction.getRawData().getContractList().get(0);
     int permissionId = contract.getPermissionId();
@@ -737,7 +838,7 @@ public class TransactionCapsule implements ProtoCapsule<Transaction> {
         throw new PermissionException("Permission denied");
       }
     }
-    long weight = checkWeight(permission, transaction.getSignatureList(), hash, null);
+    long weight = checkWeight(permission, transaction.getSignatureList(), signers, null);
     if (weight >= permission.getThreshold()) {
       return true;
     }
@@ -757,9 +858,9 @@ public class TransactionCapsule implements ProtoCapsule<Transaction> {
     if (this.transaction.getSignatureCount() > manager.getDynamicPropertiesStore().getTotalSignNum()) {
       throw new ValidateSignatureException("too many signatures");
     }
-    byte[] hash = this.getRawHash().getBytes();
     try {
-      if (!validateSignature(this.transaction, hash, manager)) {
+      List<byte[]> signers = getSigners(manager.getSignerCache());
+      if (!validateSignature(this.transaction, signers, manager)) {
         isVerified = false;
         throw new ValidateSignatureException("sig error");
       }
@@ -778,13 +879,46 @@ public class TransactionCapsule implements ProtoCapsule<Transaction> {
     return true;
   }
 
+  /**
+   * Signer addresses of the signatures, from the cache or recovered and added to it. They do not
+   * depend on any state, so they may be recovered ahead of validation.
+   */
+  public List<byte[]> getSigners(SignerCache signerCache)
+      throws SignatureException, SignatureFormatException {
+    byte[] hash = this.getRawHash().getBytes();
+    Sha256Hash key = SignerCache.key(hash, this.transaction.getSignatureList());
+    List<byte[]> signers = signerCache.getIfPresent(key);
+    if (signers != null && signers.size() != this.transaction.getSignatureCount()) {
+      signers = null;
+    }
+    signersCached = signers != null;
+    if (signers == null) {
+      long start = System.nanoTime();
+      signers = recoverSigners(this.transaction.getSignatureList(), hash);
+      signerCache.put(key, signers, System.nanoTime() - start);
+    }
+    return signers;
+  }
+
   public Sha256Hash getTransactionId() {
     return getRawHash();
   }
 
+  /**
+   * The returned array is shared by every caller and must not be modified.
+   */
   @Override
   public byte[] getData() {
-    return this.transaction.toByteArray();
+    return getData(this.transaction);
+  }
+
+  private byte[] getData(Transaction current) {
+    Derived<Transaction> derived = data;
+    if (derived == null || derived.source != current) {
+      derived = new Derived<>(current, current.toByteArray(), null);
+      data = derived;
+    }
+    return derived.bytes;
   }
 
   public long getSerializedSize() {
@@ -916,10 +1050,10 @@ public class TransactionCapsule implements ProtoCapsule<Transaction> {
     if (this.transaction.getRetCount() > 0) {
       ret = this.transaction.getRet(0).toBuilder().setContractRet(code).build();
 
-      this.transaction = transaction.toBuilder().setRet(0, ret).build();
+      setInstance(transaction.toBuilder().setRet(0, ret).build());
       return;
     }
-    this.transaction = transaction.toBuilder().addRet(ret).build();
+    setInstance(transaction.toBuilder().addRet(ret).build());
   }
 
   public contractResult getContractRet() {
@@ -3,6 +3,7 @@ package org.unichain.core.capsule.utils;
 import lombok.Getter;
 import org.unichain.common.utils.Sha256Hash;
 
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -27,6 +28,31 @@ public class MerkleTree {
     return instance;
   }
 
+  /**
+   * Root of the tree {@link #createTree(List)} builds over the same leaves, an unpaired node moving
+   * up unchanged. Levels are hashed in place with one digest, without building the leaf objects.
+   *
+   * @param hashes leaf hashes, overwritten by the internal levels
+   */
+  public static Sha256Hash computeRoot(byte[][] hashes) {
+    MessageDigest digest = Sha256Hash.newDigest();
+    int len = hashes.length;
+    while (len > 1) {
+      int parents = 0;
+      for (int i = 0; i < len; i += 2) {
+        if (i + 1 < len) {
+          digest.update(hashes[i]);
+          digest.update(hashes[i + 1]);
+          hashes[parents++] = digest.digest();
+        } else {
+          hashes[parents++] = hashes[i];
+        }
+      }
+      len = parents;
+    }
+    return Sha256Hash.wrap(hashes[0]);
+  }
+
   public MerkleTree createTree(List<Sha256Hash> hashList) {
     this.leaves = new ArrayList<>();
     this.hashList = hashList;
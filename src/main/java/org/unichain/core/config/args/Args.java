@@ -169,6 +169,10 @@ public class Args {
   @Setter
   private boolean needSyncCheck;
 
+  @Getter
+  @Setter
+  private boolean speculativeExecution;
+
   @Getter
   @Setter
   private boolean nodeDiscoveryEnable;
@@ -487,6 +491,7 @@ public class Args {
     INSTANCE.chainId = null;
     INSTANCE.localWitnesses = null;
     INSTANCE.needSyncCheck = false;
+    INSTANCE.speculativeExecution = false;
     INSTANCE.nodeDiscoveryEnable = false;
     INSTANCE.nodeDiscoveryPersist = false;
     INSTANCE.nodeConnectionTimeout = 0;
@@ -687,6 +692,8 @@ public class Args {
         .map(Boolean::valueOf)
         .orElse(Storage.getDbVersionSyncFromConfig(config)));
 
+    INSTANCE.storage.setSnapshotMap(Storage.getSnapshotMapFromConfig(config));
+
     INSTANCE.storage.setContractParseSwitch(Optional.ofNullable(INSTANCE.contractParseEnable)
         .filter(StringUtils::isNotEmpty)
         .map(Boolean::valueOf)
@@ -736,6 +743,9 @@ public class Args {
     INSTANCE.needSyncCheck =
         config.hasPath("block.needSyncCheck") && config.getBoolean("block.needSyncCheck");
 
+    INSTANCE.speculativeExecution = config.hasPath("block.speculativeExecution")
+        && config.getBoolean("block.speculativeExecution");
+
     INSTANCE.nodeDiscoveryEnable =
         config.hasPath("node.discovery.enable") && config.getBoolean("node.discovery.enable");
 
@@ -45,6 +45,7 @@ public class Storage {
   private static final String DB_VERSION_CONFIG_KEY = "storage.db.version";
   private static final String DB_ENGINE_CONFIG_KEY = "storage.db.engine";
   private static final String DB_SYNC_CONFIG_KEY = "storage.db.sync";
+  private static final String DB_SNAPSHOT_MAP_CONFIG_KEY = "storage.db.snapshotMap";
   private static final String INDEX_DIRECTORY_CONFIG_KEY = "storage.index.directory";
   private static final String INDEX_SWITCH_CONFIG_KEY = "storage.index.switch";
   private static final String TRANSACTIONHISTORY_SWITCH_CONFIG_KEY = "storage.transHistory.switch";
@@ -61,6 +62,7 @@ public class Storage {
   private static final String WRITE_BUFFER_SIZE_CONFIG_KEY = "writeBufferSize";
   private static final String CACHE_SIZE_CONFIG_KEY = "cacheSize";
   private static final String MAX_OPEN_FILES_CONFIG_KEY = "maxOpenFiles";
+  private static final String DECODED_CACHE_SIZE_CONFIG_KEY = "decodedCacheSize";
   private static final String EVENT_SUBSCRIB_CONTRACT_PARSE = "event.subscribe.contractParse";
 
   /**
@@ -69,6 +71,7 @@ public class Storage {
   private static final int DEFAULT_DB_VERSION = 2;
   private static final String DEFAULT_DB_ENGINE = "LEVELDB";
   private static final boolean DEFAULT_DB_SYNC = false;
+  private static final String DEFAULT_DB_SNAPSHOT_MAP = "HASHMAP";
   private static final boolean DEFAULT_EVENT_SUBSCRIB_CONTRACT_PARSE = true;
   private static final String DEFAULT_DB_DIRECTORY = "database";
   private static final String DEFAULT_INDEX_DIRECTORY = "index";
@@ -105,6 +108,13 @@ public class Storage {
   @Setter
   private boolean dbSync;
 
+  /**
+   * Map of the in-memory snapshot layers: HASHMAP or OPENHASH
+   */
+  @Getter
+  @Setter
+  private String snapshotMap;
+
   /**
    * Index storage directory: /path/to/{indexDirectory}
    */
@@ -134,6 +144,7 @@ public class Storage {
     private String name;
     private String path;
     private Options dbOptions;
+    private Long decodedCacheSize;
   }
 
   /**
@@ -156,6 +167,11 @@ public class Storage {
         config.getBoolean(DB_SYNC_CONFIG_KEY) : DEFAULT_DB_SYNC;
   }
 
+  public static String getSnapshotMapFromConfig(final Config config) {
+    return config.hasPath(DB_SNAPSHOT_MAP_CONFIG_KEY) ?
+        config.getString(DB_SNAPSHOT_MAP_CONFIG_KEY) : DEFAULT_DB_SNAPSHOT_MAP;
+  }
+
   public static Boolean getContractParseSwitchFromConfig(final Config config) {
     return config.hasPath(EVENT_SUBSCRIB_CONTRACT_PARSE) ?
         config.getBoolean(EVENT_SUBSCRIB_CONTRACT_PARSE) : DEFAULT_EVENT_SUBSCRIB_CONTRACT_PARSE;
@@ -221,6 +237,26 @@ public class Storage {
     return createDefaultDbOptions();
   }
 
+  /**
+   * Get the weight bound of the decoded capsule cache of a database
+   *
+   * @param dbName name of database
+   * @return bound in serialized bytes, 0 if the cache is disabled
+   */
+  public long getDecodedCacheSizeByDbName(String dbName) {
+    return getDecodedCacheSizeByDbName(dbName, 0);
+  }
+
+  /**
+   * @param defaultSize size used when the database doesn't set decodedCacheSize
+   */
+  public long getDecodedCacheSizeByDbName(String dbName, long defaultSize) {
+    if (hasProperty(dbName) && getProperty(dbName).getDecodedCacheSize() != null) {
+      return getProperty(dbName).getDecodedCacheSize();
+    }
+    return defaultSize;
+  }
+
   /**
    * Only for unit test on db
    */
@@ -368,6 +404,19 @@ public class Storage {
       }
     }
 
+    if (conf.containsKey(DECODED_CACHE_SIZE_CONFIG_KEY)) {
+      try {
+        property.setDecodedCacheSize(
+            Long.parseLong(
+                conf.get(DECODED_CACHE_SIZE_CONFIG_KEY).unwrapped().toString()
+            )
+        );
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException(
+            "[storage.properties] decodedCacheSize must be Long type.");
+      }
+    }
+
     property.setDbOptions(dbOptions);
     return property;
   }
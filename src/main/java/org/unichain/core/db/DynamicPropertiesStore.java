@@ -12,9 +12,13 @@ import org.unichain.core.capsule.BytesCapsule;
 import org.unichain.core.config.Parameter;
 import org.unichain.core.config.Parameter.ChainConstant;
 import org.unichain.core.config.args.Args;
+import org.unichain.core.db.common.WrappedByteArray;
+import org.unichain.core.db2.core.RevokingDBWithCachingNewValue;
 
 import java.util.Arrays;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.IntStream;
 
 @Slf4j(topic = "DB")
@@ -177,9 +181,17 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   private static final byte[] MAX_FUTURE_TRANSFER_TIME_RANGE_UNW = "MAX_FUTURE_TRANSFER_TIME_RANGE_UNW".getBytes();
   private static final byte[] MAX_FUTURE_TRANSFER_TIME_RANGE_TOKEN = "MAX_FUTURE_TRANSFER_TIME_RANGE_TOKEN".getBytes();
 
+  // typed mirror of the long properties, see getLong
+  private final LongMirror longMirror = new LongMirror();
+
   @Autowired
   private DynamicPropertiesStore(@Value("properties") String dbName) {
     super(dbName);
+    if (revokingDB instanceof RevokingDBWithCachingNewValue) {
+      ((RevokingDBWithCachingNewValue) revokingDB).addChangeListener(longMirror::invalidate);
+    } else {
+      longMirror.disable();
+    }
 
     try {
       this.getTotalSignNum();
@@ -651,11 +663,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   }
 
   public long getTokenIdNum() {
-    return Optional.ofNullable(getUnchecked(TOKEN_ID_NUM))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found TOKEN_ID_NUM"));
+    return getLong(TOKEN_ID_NUM, "not found TOKEN_ID_NUM");
   }
 
   public void saveTokenUpdateDone(long num) {
@@ -664,11 +672,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   }
 
   public long getTokenUpdateDone() {
-    return Optional.ofNullable(getUnchecked(TOKEN_UPDATE_DONE))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found TOKEN_UPDATE_DONE"));
+    return getLong(TOKEN_UPDATE_DONE, "not found TOKEN_UPDATE_DONE");
   }
 
 
@@ -777,11 +781,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   }
 
   public long getMaintenanceTimeInterval() {
-    return Optional.ofNullable(getUnchecked(MAINTENANCE_TIME_INTERVAL))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found MAINTENANCE_TIME_INTERVAL"));
+    return getLong(MAINTENANCE_TIME_INTERVAL, "not found MAINTENANCE_TIME_INTERVAL");
   }
 
   public void saveAccountUpgradeCost(long accountUpgradeCost) {
@@ -791,11 +791,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   }
 
   public long getAccountUpgradeCost() {
-    return Optional.ofNullable(getUnchecked(ACCOUNT_UPGRADE_COST))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found ACCOUNT_UPGRADE_COST"));
+    return getLong(ACCOUNT_UPGRADE_COST, "not found ACCOUNT_UPGRADE_COST");
   }
 
   public void saveWitnessPayPerBlock(long pay) {
@@ -805,11 +801,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   }
 
   public long getWitnessPayPerBlock() {
-    return Optional.ofNullable(getUnchecked(WITNESS_PAY_PER_BLOCK))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found WITNESS_PAY_PER_BLOCK"));
+    return getLong(WITNESS_PAY_PER_BLOCK, "not found WITNESS_PAY_PER_BLOCK");
   }
 
   public void saveWitness55PayPerBlock(long pay) {
@@ -832,11 +824,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   }
 
   public long getWitnessStandbyAllowance() {
-    return Optional.ofNullable(getUnchecked(WITNESS_STANDBY_ALLOWANCE))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found WITNESS_STANDBY_ALLOWANCE"));
+    return getLong(WITNESS_STANDBY_ALLOWANCE, "not found WITNESS_STANDBY_ALLOWANCE");
   }
 
   public void saveHardForkVersion(long blockVersion) {
@@ -871,11 +859,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   }
 
   public long getOneDayNetLimit() {
-    return Optional.ofNullable(getUnchecked(DynamicResourceProperties.ONE_DAY_NET_LIMIT))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found ONE_DAY_NET_LIMIT"));
+    return getLong(DynamicResourceProperties.ONE_DAY_NET_LIMIT, "not found ONE_DAY_NET_LIMIT");
   }
 
   public void savePublicNetUsage(long publicNetUsage) {
@@ -884,11 +868,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   }
 
   public long getPublicNetUsage() {
-    return Optional.ofNullable(getUnchecked(DynamicResourceProperties.PUBLIC_NET_USAGE))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found PUBLIC_NET_USAGE"));
+    return getLong(DynamicResourceProperties.PUBLIC_NET_USAGE, "not found PUBLIC_NET_USAGE");
   }
 
   public void savePublicNetLimit(long publicNetLimit) {
@@ -897,11 +877,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   }
 
   public long getPublicNetLimit() {
-    return Optional.ofNullable(getUnchecked(DynamicResourceProperties.PUBLIC_NET_LIMIT))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found PUBLIC_NET_LIMIT"));
+    return getLong(DynamicResourceProperties.PUBLIC_NET_LIMIT, "not found PUBLIC_NET_LIMIT");
   }
 
   public void savePublicNetTime(long publicNetTime) {
@@ -910,11 +886,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   }
 
   public long getPublicNetTime() {
-    return Optional.ofNullable(getUnchecked(DynamicResourceProperties.PUBLIC_NET_TIME))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found PUBLIC_NET_TIME"));
+    return getLong(DynamicResourceProperties.PUBLIC_NET_TIME, "not found PUBLIC_NET_TIME");
   }
 
   public void saveFreeNetLimit(long freeNetLimit) {
@@ -923,11 +895,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   }
 
   public long getFreeNetLimit() {
-    return Optional.ofNullable(getUnchecked(DynamicResourceProperties.FREE_NET_LIMIT))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found FREE_NET_LIMIT"));
+    return getLong(DynamicResourceProperties.FREE_NET_LIMIT, "not found FREE_NET_LIMIT");
   }
 
   public void saveTotalNetWeight(long totalNetWeight) {
@@ -936,11 +904,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   }
 
   public long getTotalNetWeight() {
-    return Optional.ofNullable(getUnchecked(DynamicResourceProperties.TOTAL_NET_WEIGHT))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found TOTAL_NET_WEIGHT"));
+    return getLong(DynamicResourceProperties.TOTAL_NET_WEIGHT, "not found TOTAL_NET_WEIGHT");
   }
 
   public void saveTotalEnergyWeight(long totalEnergyWeight) {
@@ -949,11 +913,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   }
 
   public long getTotalEnergyWeight() {
-    return Optional.ofNullable(getUnchecked(DynamicResourceProperties.TOTAL_ENERGY_WEIGHT))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found TOTAL_ENERGY_WEIGHT"));
+    return getLong(DynamicResourceProperties.TOTAL_ENERGY_WEIGHT, "not found TOTAL_ENERGY_WEIGHT");
   }
 
 
@@ -963,11 +923,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   }
 
   public long getTotalNetLimit() {
-    return Optional.ofNullable(getUnchecked(DynamicResourceProperties.TOTAL_NET_LIMIT))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found TOTAL_NET_LIMIT"));
+    return getLong(DynamicResourceProperties.TOTAL_NET_LIMIT, "not found TOTAL_NET_LIMIT");
   }
 
   @Deprecated
@@ -991,11 +947,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   }
 
   public long getTotalEnergyLimit() {
-    return Optional.ofNullable(getUnchecked(DynamicResourceProperties.TOTAL_ENERGY_LIMIT))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found TOTAL_ENERGY_LIMIT"));
+    return getLong(DynamicResourceProperties.TOTAL_ENERGY_LIMIT, "not found TOTAL_ENERGY_LIMIT");
   }
 
   public void saveTotalEnergyCurrentLimit(long totalEnergyCurrentLimit) {
@@ -1004,11 +956,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   }
 
   public long getTotalEnergyCurrentLimit() {
-    return Optional.ofNullable(getUnchecked(DynamicResourceProperties.TOTAL_ENERGY_CURRENT_LIMIT))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found TOTAL_ENERGY_CURRENT_LIMIT"));
+    return getLong(DynamicResourceProperties.TOTAL_ENERGY_CURRENT_LIMIT, "not found TOTAL_ENERGY_CURRENT_LIMIT");
   }
 
   public void saveTotalEnergyTargetLimit(long targetTotalEnergyLimit) {
@@ -1017,11 +965,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   }
 
   public long getTotalEnergyTargetLimit() {
-    return Optional.ofNullable(getUnchecked(DynamicResourceProperties.TOTAL_ENERGY_TARGET_LIMIT))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found TOTAL_ENERGY_TARGET_LIMIT"));
+    return getLong(DynamicResourceProperties.TOTAL_ENERGY_TARGET_LIMIT, "not found TOTAL_ENERGY_TARGET_LIMIT");
   }
 
   public void saveTotalEnergyAverageUsage(long totalEnergyAverageUsage) {
@@ -1030,11 +974,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   }
 
   public long getTotalEnergyAverageUsage() {
-    return Optional.ofNullable(getUnchecked(DynamicResourceProperties.TOTAL_ENERGY_AVERAGE_USAGE))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found TOTAL_ENERGY_AVERAGE_USAGE"));
+    return getLong(DynamicResourceProperties.TOTAL_ENERGY_AVERAGE_USAGE, "not found TOTAL_ENERGY_AVERAGE_USAGE");
   }
 
   public void saveAdaptiveResourceLimitMultiplier(long adaptiveResourceLimitMultiplier) {
@@ -1043,11 +983,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   }
 
   public long getAdaptiveResourceLimitMultiplier() {
-    return Optional.ofNullable(getUnchecked(DynamicResourceProperties.ADAPTIVE_RESOURCE_LIMIT_MULTIPLIER))
-            .map(BytesCapsule::getData)
-            .map(ByteArray::toLong)
-            .orElseThrow(
-                    () -> new IllegalArgumentException("not found ADAPTIVE_RESOURCE_LIMIT_MULTIPLIER"));
+    return getLong(DynamicResourceProperties.ADAPTIVE_RESOURCE_LIMIT_MULTIPLIER, "not found ADAPTIVE_RESOURCE_LIMIT_MULTIPLIER");
   }
 
   public void saveAdaptiveResourceLimitTargetRatio(long adaptiveResourceLimitTargetRatio) {
@@ -1056,11 +992,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   }
 
   public long getAdaptiveResourceLimitTargetRatio() {
-    return Optional.ofNullable(getUnchecked(DynamicResourceProperties.ADAPTIVE_RESOURCE_LIMIT_TARGET_RATIO))
-            .map(BytesCapsule::getData)
-            .map(ByteArray::toLong)
-            .orElseThrow(
-                    () -> new IllegalArgumentException("not found ADAPTIVE_RESOURCE_LIMIT_TARGET_RATIO"));
+    return getLong(DynamicResourceProperties.ADAPTIVE_RESOURCE_LIMIT_TARGET_RATIO, "not found ADAPTIVE_RESOURCE_LIMIT_TARGET_RATIO");
   }
 
 
@@ -1072,11 +1004,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   }
 
   public long getTotalEnergyAverageTime() {
-    return Optional.ofNullable(getUnchecked(DynamicResourceProperties.TOTAL_ENERGY_AVERAGE_TIME))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found TOTAL_NET_AVERAGE_TIME"));
+    return getLong(DynamicResourceProperties.TOTAL_ENERGY_AVERAGE_TIME, "not found TOTAL_NET_AVERAGE_TIME");
   }
 
   public void saveBlockEnergyUsage(long blockEnergyUsage) {
@@ -1085,11 +1013,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   }
 
   public long getBlockEnergyUsage() {
-    return Optional.ofNullable(getUnchecked(DynamicResourceProperties.BLOCK_ENERGY_USAGE))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found BLOCK_ENERGY_USAGE"));
+    return getLong(DynamicResourceProperties.BLOCK_ENERGY_USAGE, "not found BLOCK_ENERGY_USAGE");
   }
 
   public void saveEnergyFee(long totalEnergyFee) {
@@ -1098,11 +1022,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   }
 
   public long getEnergyFee() {
-    return Optional.ofNullable(getUnchecked(ENERGY_FEE))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found ENERGY_FEE"));
+    return getLong(ENERGY_FEE, "not found ENERGY_FEE");
   }
 
   public void saveMaxCpuTimeOfOneTx(long time) {
@@ -1111,11 +1031,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   }
 
   public long getMaxCpuTimeOfOneTx() {
-    return Optional.ofNullable(getUnchecked(MAX_CPU_TIME_OF_ONE_TX))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found MAX_CPU_TIME_OF_ONE_TX"));
+    return getLong(MAX_CPU_TIME_OF_ONE_TX, "not found MAX_CPU_TIME_OF_ONE_TX");
   }
 
   public void saveCreateAccountFee(long fee) {
@@ -1124,11 +1040,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   }
 
   public long getCreateAccountFee() {
-    return Optional.ofNullable(getUnchecked(CREATE_ACCOUNT_FEE))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found CREATE_ACCOUNT_FEE"));
+    return getLong(CREATE_ACCOUNT_FEE, "not found CREATE_ACCOUNT_FEE");
   }
 
 
@@ -1138,12 +1050,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   }
 
   public long getCreateNewAccountFeeInSystemContract() {
-    return Optional.ofNullable(getUnchecked(CREATE_NEW_ACCOUNT_FEE_IN_SYSTEM_CONTRACT))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException(
-                "not found CREATE_NEW_ACCOUNT_FEE_IN_SYSTEM_CONTRACT"));
+    return getLong(CREATE_NEW_ACCOUNT_FEE_IN_SYSTEM_CONTRACT, "not found CREATE_NEW_ACCOUNT_FEE_IN_SYSTEM_CONTRACT");
   }
 
   public void saveCreateNewAccountBandwidthRate(long rate) {
@@ -1152,12 +1059,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   }
 
   public long getCreateNewAccountBandwidthRate() {
-    return Optional.ofNullable(getUnchecked(CREATE_NEW_ACCOUNT_BANDWIDTH_RATE))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException(
-                "not found CREATE_NsEW_ACCOUNT_BANDWIDTH_RATE2"));
+    return getLong(CREATE_NEW_ACCOUNT_BANDWIDTH_RATE, "not found CREATE_NsEW_ACCOUNT_BANDWIDTH_RATE2");
   }
 
   public void saveTransactionFee(long fee) {
@@ -1166,11 +1068,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   }
 
   public long getTransactionFee() {
-    return Optional.ofNullable(getUnchecked(TRANSACTION_FEE))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found TRANSACTION_FEE"));
+    return getLong(TRANSACTION_FEE, "not found TRANSACTION_FEE");
   }
 
   public void saveAssetIssueFee(long fee) {
@@ -1195,35 +1093,19 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
 
 
   public long getAssetIssueFee() {
-    return Optional.ofNullable(getUnchecked(ASSET_ISSUE_FEE))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found ASSET_ISSUE_FEE"));
+    return getLong(ASSET_ISSUE_FEE, "not found ASSET_ISSUE_FEE");
   }
 
   public long getAssetUpdateFee() {
-    return Optional.ofNullable(getUnchecked(ASSET_UPDATE_FEE))
-            .map(BytesCapsule::getData)
-            .map(ByteArray::toLong)
-            .orElseThrow(
-                    () -> new IllegalArgumentException("not found ASSET_UPDATE_FEE"));
+    return getLong(ASSET_UPDATE_FEE, "not found ASSET_UPDATE_FEE");
   }
 
   public long getUpdateAccountPermissionFee() {
-    return Optional.ofNullable(getUnchecked(UPDATE_ACCOUNT_PERMISSION_FEE))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found UPDATE_ACCOUNT_PERMISSION_FEE"));
+    return getLong(UPDATE_ACCOUNT_PERMISSION_FEE, "not found UPDATE_ACCOUNT_PERMISSION_FEE");
   }
 
   public long getMultiSignFee() {
-    return Optional.ofNullable(getUnchecked(MULTI_SIGN_FEE))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found MULTI_SIGN_FEE"));
+    return getLong(MULTI_SIGN_FEE, "not found MULTI_SIGN_FEE");
   }
 
 
@@ -1233,11 +1115,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   }
 
   public long getExchangeCreateFee() {
-    return Optional.ofNullable(getUnchecked(EXCHANGE_CREATE_FEE))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found EXCHANGE_CREATE_FEE"));
+    return getLong(EXCHANGE_CREATE_FEE, "not found EXCHANGE_CREATE_FEE");
   }
 
   public void saveExchangeBalanceLimit(long limit) {
@@ -1246,11 +1124,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   }
 
   public long getExchangeBalanceLimit() {
-    return Optional.ofNullable(getUnchecked(EXCHANGE_BALANCE_LIMIT))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found EXCHANGE_BALANCE_LIMIT"));
+    return getLong(EXCHANGE_BALANCE_LIMIT, "not found EXCHANGE_BALANCE_LIMIT");
   }
 
   public void saveTotalTransactionCost(long value) {
@@ -1259,11 +1133,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   }
 
   public long getTotalTransactionCost() {
-    return Optional.ofNullable(getUnchecked(TOTAL_TRANSACTION_COST))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found TOTAL_TRANSACTION_COST"));
+    return getLong(TOTAL_TRANSACTION_COST, "not found TOTAL_TRANSACTION_COST");
   }
 
   public void saveTotalCreateAccountFee(long value) {
@@ -1272,11 +1142,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   }
 
   public long getTotalCreateAccountCost() {
-    return Optional.ofNullable(getUnchecked(TOTAL_CREATE_ACCOUNT_COST))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found TOTAL_CREATE_ACCOUNT_COST"));
+    return getLong(TOTAL_CREATE_ACCOUNT_COST, "not found TOTAL_CREATE_ACCOUNT_COST");
   }
 
   public void saveTotalCreateWitnessFee(long value) {
@@ -1285,11 +1151,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   }
 
   public long getTotalCreateWitnessCost() {
-    return Optional.ofNullable(getUnchecked(TOTAL_CREATE_WITNESS_COST))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found TOTAL_CREATE_WITNESS_COST"));
+    return getLong(TOTAL_CREATE_WITNESS_COST, "not found TOTAL_CREATE_WITNESS_COST");
   }
 
   public void saveTotalStoragePool(long unx) {
@@ -1298,11 +1160,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   }
 
   public long getTotalStoragePool() {
-    return Optional.ofNullable(getUnchecked(TOTAL_STORAGE_POOL))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found TOTAL_STORAGE_POOL"));
+    return getLong(TOTAL_STORAGE_POOL, "not found TOTAL_STORAGE_POOL");
   }
 
   public void saveTotalStorageTax(long unx) {
@@ -1311,11 +1169,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   }
 
   public long getTotalStorageTax() {
-    return Optional.ofNullable(getUnchecked(TOTAL_STORAGE_TAX))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found TOTAL_STORAGE_TAX"));
+    return getLong(TOTAL_STORAGE_TAX, "not found TOTAL_STORAGE_TAX");
   }
 
   public void saveTotalStorageReserved(long bytes) {
@@ -1324,11 +1178,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   }
 
   public long getTotalStorageReserved() {
-    return Optional.ofNullable(getUnchecked(TOTAL_STORAGE_RESERVED))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found TOTAL_STORAGE_RESERVED"));
+    return getLong(TOTAL_STORAGE_RESERVED, "not found TOTAL_STORAGE_RESERVED");
   }
 
   public void saveStorageExchangeTaxRate(long rate) {
@@ -1337,11 +1187,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   }
 
   public long getStorageExchangeTaxRate() {
-    return Optional.ofNullable(getUnchecked(STORAGE_EXCHANGE_TAX_RATE))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found STORAGE_EXCHANGE_TAX_RATE"));
+    return getLong(STORAGE_EXCHANGE_TAX_RATE, "not found STORAGE_EXCHANGE_TAX_RATE");
   }
 
   public void saveRemoveThePowerOfTheGr(long rate) {
@@ -1350,11 +1196,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   }
 
   public long getRemoveThePowerOfTheGr() {
-    return Optional.ofNullable(getUnchecked(REMOVE_THE_POWER_OF_THE_GR))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found REMOVE_THE_POWER_OF_THE_GR"));
+    return getLong(REMOVE_THE_POWER_OF_THE_GR, "not found REMOVE_THE_POWER_OF_THE_GR");
   }
 
   public void saveAllowDelegateResource(long value) {
@@ -1363,11 +1205,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   }
 
   public long getAllowDelegateResource() {
-    return Optional.ofNullable(getUnchecked(ALLOW_DELEGATE_RESOURCE))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found ALLOW_DELEGATE_RESOURCE"));
+    return getLong(ALLOW_DELEGATE_RESOURCE, "not found ALLOW_DELEGATE_RESOURCE");
   }
 
   public void saveAllowAdaptiveEnergy(long value) {
@@ -1376,11 +1214,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   }
 
   public long getAllowAdaptiveEnergy() {
-    return Optional.ofNullable(getUnchecked(ALLOW_ADAPTIVE_ENERGY))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found ALLOW_ADAPTIVE_ENERGY"));
+    return getLong(ALLOW_ADAPTIVE_ENERGY, "not found ALLOW_ADAPTIVE_ENERGY");
   }
 
   public void saveAllowTvmTransferUnc(long value) {
@@ -1389,11 +1223,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   }
 
   public long getAllowTvmTransferUnc() {
-    return Optional.ofNullable(getUnchecked(ALLOW_TVM_TRANSFER_UNC))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found ALLOW_TVM_TRANSFER_UNC"));
+    return getLong(ALLOW_TVM_TRANSFER_UNC, "not found ALLOW_TVM_TRANSFER_UNC");
   }
 
   public void saveAllowTvmConstantinople(long value) {
@@ -1402,11 +1232,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   }
 
   public long getAllowTvmConstantinople() {
-    return Optional.ofNullable(getUnchecked(ALLOW_TVM_CONSTANTINOPLE))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found ALLOW_TVM_CONSTANTINOPLE"));
+    return getLong(ALLOW_TVM_CONSTANTINOPLE, "not found ALLOW_TVM_CONSTANTINOPLE");
   }
 
 
@@ -1416,10 +1242,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   }
 
   public long getAllowUvmSolidity059() {
-    return Optional.ofNullable(getUnchecked(ALLOW_TVM_SOLIDITY_059))
-            .map(BytesCapsule::getData)
-            .map(ByteArray::toLong)
-            .orElseThrow(() -> new IllegalArgumentException("not found ALLOW_TVM_SOLIDITY_059"));
+    return getLong(ALLOW_TVM_SOLIDITY_059, "not found ALLOW_TVM_SOLIDITY_059");
   }
 
 
@@ -1478,11 +1301,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   }
 
   public long getAllowUpdateAccountName() {
-    return Optional.ofNullable(getUnchecked(ALLOW_UPDATE_ACCOUNT_NAME))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found ALLOW_UPDATE_ACCOUNT_NAME"));
+    return getLong(ALLOW_UPDATE_ACCOUNT_NAME, "not found ALLOW_UPDATE_ACCOUNT_NAME");
   }
 
   public void saveAllowSameTokenName(long rate) {
@@ -1491,11 +1310,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   }
 
   public long getAllowSameTokenName() {
-    return Optional.ofNullable(getUnchecked(ALLOW_SAME_TOKEN_NAME))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found ALLOW_SAME_TOKEN_NAME"));
+    return getLong(ALLOW_SAME_TOKEN_NAME, "not found ALLOW_SAME_TOKEN_NAME");
   }
 
   public void saveAllowCreationOfContracts(long allowCreationOfContracts) {
@@ -1522,19 +1337,11 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   }
 
   public long getAllowMultiSign() {
-    return Optional.ofNullable(getUnchecked(ALLOW_MULTI_SIGN))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found ALLOW_MULTI_SIGN"));
+    return getLong(ALLOW_MULTI_SIGN, "not found ALLOW_MULTI_SIGN");
   }
 
   public long getAllowCreationOfContracts() {
-    return Optional.ofNullable(getUnchecked(ALLOW_CREATION_OF_CONTRACTS))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found ALLOW_CREATION_OF_CONTRACTS"));
+    return getLong(ALLOW_CREATION_OF_CONTRACTS, "not found ALLOW_CREATION_OF_CONTRACTS");
   }
 
   public boolean supportVM() {
@@ -1580,11 +1387,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
 
 
   public long getLatestSolidifiedBlockNum() {
-    return Optional.ofNullable(getUnchecked(LATEST_SOLIDIFIED_BLOCK_NUM))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found latest SOLIDIFIED_BLOCK_NUM"));
+    return getLong(LATEST_SOLIDIFIED_BLOCK_NUM, "not found latest SOLIDIFIED_BLOCK_NUM");
   }
 
   public void saveLatestProposalNum(long number) {
@@ -1592,11 +1395,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   }
 
   public long getLatestProposalNum() {
-    return Optional.ofNullable(getUnchecked(LATEST_PROPOSAL_NUM))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found latest PROPOSAL_NUM"));
+    return getLong(LATEST_PROPOSAL_NUM, "not found latest PROPOSAL_NUM");
   }
 
   public void saveLatestExchangeNum(long number) {
@@ -1604,22 +1403,14 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   }
 
   public long getLatestExchangeNum() {
-    return Optional.ofNullable(getUnchecked(LATEST_EXCHANGE_NUM))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found latest EXCHANGE_NUM"));
+    return getLong(LATEST_EXCHANGE_NUM, "not found latest EXCHANGE_NUM");
   }
 
   /**
    * get timestamp of creating global latest block.
    */
   public long getLatestBlockHeaderTimestamp() {
-    return Optional.ofNullable(getUnchecked(LATEST_BLOCK_HEADER_TIMESTAMP))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found latest block header timestamp"));
+    return getLong(LATEST_BLOCK_HEADER_TIMESTAMP, "not found latest block header timestamp");
   }
 
   /**
@@ -1658,11 +1449,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
    * get number of global latest block.
    */
   public long getLatestBlockHeaderNumber() {
-    return Optional.ofNullable(getUnchecked(LATEST_BLOCK_HEADER_NUMBER))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found latest block header number"));
+    return getLong(LATEST_BLOCK_HEADER_NUMBER, "not found latest block header number");
   }
 
   public int getStateFlag() {
@@ -1714,11 +1501,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
 
 
   public long getNextMaintenanceTime() {
-    return Optional.ofNullable(getUnchecked(NEXT_MAINTENANCE_TIME))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found NEXT_MAINTENANCE_TIME"));
+    return getLong(NEXT_MAINTENANCE_TIME, "not found NEXT_MAINTENANCE_TIME");
   }
 
   public long getMaintenanceSkipSlots() {
@@ -1798,10 +1581,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
    * get allow protobuf number.
    */
   public long getAllowProtoFilterNum() {
-    return Optional.ofNullable(getUnchecked(ALLOW_PROTO_FILTER_NUM))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(() -> new IllegalArgumentException("not found allow protobuf number"));
+    return getLong(ALLOW_PROTO_FILTER_NUM, "not found allow protobuf number");
   }
 
   /**
@@ -1818,11 +1598,7 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
   }
 
   public long getAllowAccountStateRoot() {
-    return Optional.ofNullable(getUnchecked(ALLOW_ACCOUNT_STATE_ROOT))
-        .map(BytesCapsule::getData)
-        .map(ByteArray::toLong)
-        .orElseThrow(
-            () -> new IllegalArgumentException("not found ALLOW_ACCOUNT_STATE_ROOT"));
+    return getLong(ALLOW_ACCOUNT_STATE_ROOT, "not found ALLOW_ACCOUNT_STATE_ROOT");
   }
 
   public boolean allowAccountStateRoot() {
@@ -1856,4 +1632,72 @@ public class DynamicPropertiesStore extends UnichainStoreWithRevoking<BytesCapsu
     return getChangeDelegation() == 1;
   }
 
+  /**
+   * Read a long property through the mirror. Every key reported by the revoking db as changed
+   * (put, delete, revoke, pop) drops its mirrored value, so a hit is always the value visible at
+   * the head snapshot and a miss reloads it under the db lock.
+   */
+  private long getLong(byte[] key, String notFound) {
+    RevokingDBWithCachingNewValue db = longMirror.isEnabled()
+        ? (RevokingDBWithCachingNewValue) revokingDB : null;
+    if (db == null || db.isSolidityMode()) {
+      return Optional.ofNullable(getUnchecked(key))
+          .map(BytesCapsule::getData)
+          .map(ByteArray::toLong)
+          .orElseThrow(() -> new IllegalArgumentException(notFound));
+    }
+
+    LongMirror.Slot slot = longMirror.slot(key);
+    if (slot.valid) {
+      return slot.value;
+    }
+
+    synchronized (db) {
+      long value = Optional.ofNullable(getUnchecked(key))
+          .map(BytesCapsule::getData)
+          .map(ByteArray::toLong)
+          .orElseThrow(() -> new IllegalArgumentException(notFound));
+      slot.value = value;
+      slot.valid = true;
+      return value;
+    }
+  }
+
+  private static class LongMirror {
+
+    private static class Slot {
+
+      private volatile long value;
+      private volatile boolean valid;
+    }
+
+    // getters pass the static key constants, so the read path looks slots up by array identity
+    private final Map<byte[], Slot> slotsByConstant = new ConcurrentHashMap<>();
+    private final Map<WrappedByteArray, Slot> slots = new ConcurrentHashMap<>();
+    private volatile boolean enabled = true;
+
+    private Slot slot(byte[] key) {
+      Slot slot = slotsByConstant.get(key);
+      if (slot == null) {
+        slot = slots.computeIfAbsent(WrappedByteArray.copyOf(key), k -> new Slot());
+        slotsByConstant.put(key, slot);
+      }
+      return slot;
+    }
+
+    private void invalidate(byte[] key) {
+      Slot slot = slots.get(WrappedByteArray.of(key));
+      if (slot != null) {
+        slot.valid = false;
+      }
+    }
+
+    private boolean isEnabled() {
+      return enabled;
+    }
+
+    private void disable() {
+      enabled = false;
+    }
+  }
 }
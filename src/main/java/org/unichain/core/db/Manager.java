@@ -41,6 +41,7 @@ import org.unichain.core.config.Parameter.ChainConstant;
 import org.unichain.core.config.args.Args;
 import org.unichain.core.config.args.GenesisBlock;
 import org.unichain.core.db.KhaosDatabase.KhaosBlock;
+import org.unichain.core.db.TransactionAdmissionStats.Stage;
 import org.unichain.core.db.accountstate.TrieService;
 import org.unichain.core.db.accountstate.callback.AccountStateCallBack;
 import org.unichain.core.db.api.AssetUpdateHelper;
@@ -63,13 +64,16 @@ import org.unichain.protos.Protocol.Transaction.Contract;
 import org.unichain.protos.Protocol.TransactionInfo;
 
 import javax.annotation.PostConstruct;
+import java.security.SignatureException;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 import java.util.stream.LongStream;
 
 import static org.unichain.core.config.Parameter.ChainConstant.*;
+import static org.unichain.core.config.Parameter.NodeConstant.MAX_TRANSACTION_ADMISSION;
 import static org.unichain.core.config.Parameter.NodeConstant.MAX_TRANSACTION_PENDING;
 
 
@@ -191,9 +195,22 @@ public class Manager {
 
   private BlockingQueue<TransactionCapsule> pushTransactionQueue = new LinkedBlockingQueue<>();
 
+  // transactions past the stateless checks and waiting for, or holding, the manager lock
+  private final Semaphore admissionPermits = new Semaphore(MAX_TRANSACTION_ADMISSION);
+
+  @Getter
+  private final TransactionAdmissionStats admissionStats = new TransactionAdmissionStats();
+
   @Getter
   private Cache<Sha256Hash, Boolean> transactionIdCache = CacheBuilder.newBuilder().maximumSize(100_000).recordStats().build();
 
+  @Getter
+  private final SignerCache signerCache = new SignerCache();
+
+  // told how long each transaction of an applied block took, used by offline tools
+  @Setter
+  private BiConsumer<TransactionCapsule, Long> transactionObserver;
+
   @Getter
   private ForkController forkController = ForkController.instance();
 
@@ -204,6 +221,12 @@ public class Manager {
   private TrieService trieService;
   private Set<String> ownerAddressSet = new HashSet<>();
 
+  // witness this node produces blocks for, null if none
+  @Setter
+  private ByteString localWitness;
+  // opened with the pending session, see SpeculativeBlock
+  private SpeculativeBlock speculativeBlock;
+
   @Getter
   @Autowired
   private DelegationService delegationService;
@@ -284,8 +307,8 @@ public class Manager {
     }
   }
 
-  public List<TransactionCapsule> getPendingTransactions() {
-    return this.pendingTransactions;
+  public TransactionPool getPendingPool() {
+    return this.pendingPool;
   }
 
   public List<TransactionCapsule> getPoppedTransactions() {
@@ -297,7 +320,7 @@ public class Manager {
   }
 
   // transactions cache
-  private List<TransactionCapsule> pendingTransactions;
+  private TransactionPool pendingPool;
 
   // transactions popped
   private List<TransactionCapsule> popedTransactions = Collections.synchronizedList(Lists.newArrayList());
@@ -434,7 +457,7 @@ public class Manager {
     revokingStore.check();
     this.setWitnessController(WitnessController.createInstance(this));
     this.setProposalController(ProposalController.createInstance(this));
-    this.pendingTransactions = Collections.synchronizedList(Lists.newArrayList());
+    this.pendingPool = new TransactionPool();
     this.repushTransactions = new LinkedBlockingQueue<>();
     this.triggerCapsuleQueue = new LinkedBlockingQueue<>();
 
@@ -583,6 +606,12 @@ public class Manager {
       return;
     }
     long start = System.currentTimeMillis();
+    if (transactionCache.isRestored()) {
+      logger.info("end to init txs cache, restored from disk. unxids:{}, cost:{}",
+          transactionCache.size(), System.currentTimeMillis() - start);
+      return;
+    }
+
     long headNum = dynamicPropertiesStore.getLatestBlockHeaderNumber();
     long recentBlockCount = recentBlockStore.size();
     ListeningExecutorService service = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(50));
@@ -617,7 +646,7 @@ public class Manager {
       logger.info(e.getMessage());
     }
 
-    logger.info("end to init txs cache. unxids:{}, block count:{}, empty block count:{}, cost:{}",
+    logger.info("end to init txs cache, replayed from blocks. unxids:{}, block count:{}, empty block count:{}, cost:{}",
         transactionCache.size(),
         blockCount.get(),
         emptyBlockCount.get(),
@@ -747,38 +776,137 @@ public class Manager {
       throws ValidateSignatureException, ContractValidateException, ContractExeException,
       AccountResourceInsufficientException, DupTransactionException, TaposException,
       TooBigTransactionException, TransactionExpirationException,
-      ReceiptCheckErrException, VMIllegalException, TooBigTransactionResultException {
+      ReceiptCheckErrException, VMIllegalException, TooBigTransactionResultException,
+      TooManyPendingException {
+    return pushTransaction(tx, true);
+  }
+
+  /**
+   * Admission runs in stages: the stateless checks and the signature recovery run on the caller
+   * thread, so the network and api pools check in parallel, and only the apply step takes the
+   * manager lock. Once MAX_TRANSACTION_ADMISSION transactions wait
+   * for the lock, new ones are turned away instead of queueing behind block processing.
+   *
+   * @param bounded false to bypass the admission limit, for transactions already accepted once
+   */
+  private boolean pushTransaction(final TransactionCapsule tx, boolean bounded)
+      throws ValidateSignatureException, ContractValidateException, ContractExeException,
+      AccountResourceInsufficientException, DupTransactionException, TaposException,
+      TooBigTransactionException, TransactionExpirationException,
+      ReceiptCheckErrException, VMIllegalException, TooBigTransactionResultException,
+      TooManyPendingException {
+    long start = System.nanoTime();
+    boolean admitted = false;
 
     synchronized (pushTransactionQueue) {
       pushTransactionQueue.add(tx);
     }
-    
+
     try {
+      preValidateTransaction(tx);
+      long checked = System.nanoTime();
+      admissionStats.record(Stage.PRECHECK, checked - start);
+
       if (!tx.validateSignature(this)) {
         throw new ValidateSignatureException("trans sig validate failed");
       }
+      long signed = System.nanoTime();
+      admissionStats.record(Stage.SIGNATURE, signed - checked);
+
+      if (bounded) {
+        if (!admissionPermits.tryAcquire()) {
+          throw new TooManyPendingException("too many transactions waiting for admission, limit "
+              + MAX_TRANSACTION_ADMISSION);
+        }
+        admitted = true;
+      }
 
       synchronized (this) {
+        long locked = System.nanoTime();
+        admissionStats.record(Stage.LOCK_WAIT, locked - signed);
         /*
           - right after one block is generated, session is reset. so the first tx broadcast will need to create one session
           - next session reuse that session
          */
         if (!session.valid()) {
           session.setValue(revokingStore.buildSession());
+          speculativeBlock = openSpeculativeBlock();
         }
 
+        String owner = ByteArray.toHexString(
+            TransactionCapsule.getOwner(tx.getInstance().getRawData().getContract(0)));
+        boolean speculate = speculativeBlock != null && speculativeBlock.accept(tx, owner);
+        // executing against a block writes the result into the capsule, the pooled transaction
+        // must stay as received in case the block is dropped and it runs again
+        TransactionCapsule executed = speculate ? new TransactionCapsule(tx.getInstance()) : tx;
+        if (speculate) {
+          executed.setVerified(!ownerAddressSet.contains(owner));
+        }
         try (ISession tmpSession = revokingStore.buildSession()) {
-          processTransaction(tx, null);
-          pendingTransactions.add(tx);
+          TransactionInfo result = processTransaction(executed,
+              speculate ? speculativeBlock.getBlock() : null);
+          if (speculate) {
+            tx.setUnxTrace(executed.getUnxTrace());
+          }
+          pendingPool.add(tx);
           tmpSession.merge();
+          if (speculate) {
+            speculativeBlock.add(executed, owner, isMultSignTransaction(tx.getInstance()), result);
+          }
         }
+        admissionStats.record(Stage.APPLY, System.nanoTime() - locked);
       }
+      admissionStats.record(Stage.TOTAL, System.nanoTime() - start);
+    } catch (ValidateSignatureException | ContractValidateException | ContractExeException
+        | AccountResourceInsufficientException | DupTransactionException | TaposException
+        | TooBigTransactionException | TransactionExpirationException | ReceiptCheckErrException
+        | VMIllegalException | TooBigTransactionResultException | TooManyPendingException e) {
+      admissionStats.reject(e);
+      throw e;
     } finally {
+      if (admitted) {
+        admissionPermits.release();
+      }
       pushTransactionQueue.remove(tx);
+      admissionStats.report();
     }
     return true;
   }
 
+  /**
+   * @return the block of the local witness for the next slot, null if the slot is not ours
+   */
+  private SpeculativeBlock openSpeculativeBlock() {
+    if (localWitness == null || !Args.getInstance().isSpeculativeExecution()
+        || dynamicPropertiesStore.allowAccountStateRoot()
+        || !localWitness.equals(witnessController.getScheduledWitness(1))) {
+      return null;
+    }
+    BlockCapsule block = new BlockCapsule(dynamicPropertiesStore.getBlockVersion(),
+        dynamicPropertiesStore.getLatestBlockHeaderNumber() + 1,
+        dynamicPropertiesStore.getLatestBlockHeaderHash(), witnessController.getSlotTime(1),
+        localWitness);
+    block.generatedByMyself = true;
+    return new SpeculativeBlock(block);
+  }
+
+  /**
+   * The checks of {@link #processTransaction} that need no lock, rejecting a bad transaction
+   * before it waits for the manager. processTransaction repeats them against the state it applies
+   * to.
+   */
+  private void preValidateTransaction(TransactionCapsule tx)
+      throws ContractValidateException, TooBigTransactionException, TransactionExpirationException,
+      TaposException, DupTransactionException {
+    validateCommon(tx);
+    if (tx.getInstance().getRawData().getContractCount() != 1) {
+      throw new ContractSizeNotEqualToOneException("act size should be exactly 1, this is extend feature");
+    }
+    validateTxAgainBlockVersion(tx, null);
+    validateTapos(tx);
+    validateDup(tx);
+  }
+
   public void consumeMultiSignFee(TransactionCapsule unx, TransactionTrace trace, BlockCapsule block) throws AccountResourceInsufficientException, ContractExeException {
     val blockVersion = findBlockVersion(block);
     switch (blockVersion){
@@ -1044,8 +1172,9 @@ public class Manager {
           throw new BadBlockException("The signature is not validated");
         }
 
-        if (!block.calcMerkleRoot().equals(block.getMerkleRoot())) {
-          logger.warn("The merkle root doesn't match, Calc result is " + block.calcMerkleRoot() + " , the headers is " + block.getMerkleRoot());
+        Sha256Hash merkleRoot = block.calcMerkleRoot();
+        if (!merkleRoot.equals(block.getMerkleRoot())) {
+          logger.warn("The merkle root doesn't match, Calc result is " + merkleRoot + " , the headers is " + block.getMerkleRoot());
           throw new BadBlockException("The merkle hash is not validated");
         }
       }
@@ -1159,10 +1288,15 @@ public class Manager {
         ownerAddressSet.addAll(result);
       }
     }
-    logger.info("pushBlock block number:{}, cost/txs:{}/{}",
+    pendingPool.report();
+    long hashReuses = block.getTransactions().stream()
+        .mapToLong(TransactionCapsule::getRawHashReuses).sum();
+    logger.info("pushBlock block number:{}, cost/txs:{}/{}, tx id reuses:{}, hashing saved:{}us",
         block.getNum(),
         System.currentTimeMillis() - start,
-        block.getTransactions().size());
+        block.getTransactions().size(),
+        hashReuses,
+        hashReuses * TransactionCapsule.getAverageRawHashNanos() / 1000);
   }
 
   public void updateDynamicProperties(BlockCapsule block) {
@@ -1394,15 +1528,24 @@ public class Manager {
     }
 
     long postponedUnxCount = 0;
+    long generateStart = System.currentTimeMillis();
     val blockVersion = this.dynamicPropertiesStore.getBlockVersion();
-    val blockCapsule = new BlockCapsule(blockVersion, number + 1, preHash, when, witnessCapsule.getAddress());
-    blockCapsule.generatedByMyself = true;
     /**
-     *  - revoke/drop current tmp snapshot, get back to stable point
-     *  - create new snapshot to apply all block's tx
+     *  - the pending session already holds the speculative block executed on the same head and slot: seal it
+     *  - otherwise revoke/drop current tmp snapshot, get back to stable point
+     *    and create new snapshot to apply all block's tx
      */
-    session.reset();
-    session.setValue(revokingStore.buildSession());
+    val speculative = speculativeBlock;
+    speculativeBlock = null;
+    val reuse = speculative != null && session.valid()
+        && speculative.matches(preHash, number + 1, when, witnessCapsule.getAddress(), blockVersion);
+    val blockCapsule = reuse ? speculative.getBlock()
+        : new BlockCapsule(blockVersion, number + 1, preHash, when, witnessCapsule.getAddress());
+    blockCapsule.generatedByMyself = true;
+    if (!reuse) {
+      session.reset();
+      session.setValue(revokingStore.buildSession());
+    }
 
     accountStateCallBack.preExecute(blockCapsule);
 
@@ -1410,11 +1553,23 @@ public class Manager {
       logger.warn("Witness permission is wrong");
       return null;
     }
-    TransactionRetCapsule txRetCapsule = new TransactionRetCapsule(blockCapsule);
+    TransactionRetCapsule txRetCapsule = reuse ? speculative.getResult() : new TransactionRetCapsule(blockCapsule);
+
+    int expired = pendingPool.evictExpired(getHeadBlockTimeStamp());
+    if (expired > 0) {
+      logger.info("{} expired pending transactions evicted", expired);
+    }
 
     Set<String> accountSet = new HashSet<>();
-    Iterator<TransactionCapsule> iterator = pendingTransactions.iterator();
-    while (iterator.hasNext() || repushTransactions.size() > 0) {
+    if (reuse) {
+      speculative.getTransactions().forEach(pendingPool::remove);
+      accountSet.addAll(speculative.getMultiSignOwners());
+    }
+    // a closed speculative block is behind the pending state, nothing can be executed on top of it
+    val extend = !reuse || !speculative.isClosed();
+    Iterator<TransactionCapsule> iterator = extend ? pendingPool.prioritized().iterator()
+        : Collections.emptyIterator();
+    while (iterator.hasNext() || (extend && repushTransactions.size() > 0)) {
       boolean fromPending = false;
       TransactionCapsule tx;
       if (iterator.hasNext()) {
@@ -1429,7 +1584,7 @@ public class Manager {
         break;
       }
 
-      if ((blockCapsule.getInstance().getSerializedSize() + tx.getSerializedSize() + 3) > ChainConstant.BLOCK_SIZE) {
+      if ((blockCapsule.getSerializedSize() + tx.getSerializedSize() + 3) > ChainConstant.BLOCK_SIZE) {
         postponedUnxCount++;
         continue;
       }
@@ -1464,7 +1619,7 @@ public class Manager {
           txRetCapsule.addTransactionInfo(result);
         }
         if (fromPending) {
-          iterator.remove();
+          pendingPool.remove(tx);
         }
       } catch (ContractExeException e) {
         logger.info("contract not processed during execute");
@@ -1514,10 +1669,13 @@ public class Manager {
       logger.info("{} transactions over the block size limit", postponedUnxCount);
     }
 
-    logger.info("postponedUnxCount[" + postponedUnxCount + "],UnxLeft[" + pendingTransactions.size() + "], repushUnxCount[" + repushTransactions.size() + "]");
+    logger.info("postponedUnxCount[" + postponedUnxCount + "],UnxLeft[" + pendingPool.size() + "], repushUnxCount[" + repushTransactions.size() + "]");
     blockCapsule.setMerkleRoot();
     blockCapsule.sign(privateKey);
     blockCapsule.setResult(txRetCapsule);
+    logger.info("generate block num:{}, txs:{}, speculative txs:{}, size:{}, cost:{}", blockCapsule.getNum(),
+        blockCapsule.getTransactions().size(), reuse ? speculative.getTransactions().size() : 0,
+        blockCapsule.getSerializedSize(), System.currentTimeMillis() - generateStart);
 
     if (unichainNetService != null) {
       unichainNetService.fastForward(new BlockMessage(blockCapsule));
@@ -1622,7 +1780,11 @@ public class Manager {
           transactionCapsule.setVerified(true);
         }
         accountStateCallBack.preExeTrans();
+        long txStart = System.nanoTime();
         TransactionInfo result = processTransaction(transactionCapsule, block);
+        if (transactionObserver != null) {
+          transactionObserver.accept(transactionCapsule, System.nanoTime() - txStart);
+        }
         accountStateCallBack.exeTransFinish();
         if (Objects.nonNull(result)) {
           transactionRetCapsule.addTransactionInfo(result);
@@ -1889,6 +2051,9 @@ public class Manager {
     closeOneStore(tokenPoolStore);
     closeOneStore(futureTokenStore);
     closeOneStore(futureTransferStore);
+    if (transactionCache != null) {
+      closeOneStore(transactionCache);
+    }
     logger.info("******** end to close db ********");
   }
 
@@ -1904,7 +2069,7 @@ public class Manager {
   }
 
   public boolean isTooManyPending() {
-    return getPendingTransactions().size() + getRepushTransactions().size() > MAX_TRANSACTION_PENDING;
+    return getPendingPool().size() + getRepushTransactions().size() > MAX_TRANSACTION_PENDING;
   }
 
   public boolean isGeneratingBlock() {
@@ -1925,6 +2090,9 @@ public class Manager {
       this.manager = manager;
     }
 
+    /**
+     * @return whether the signers were found in the signer cache
+     */
     @Override
     public Boolean call() throws ValidateSignatureException {
       try {
@@ -1934,7 +2102,26 @@ public class Manager {
       } finally {
         countDownLatch.countDown();
       }
-      return true;
+      return unx.isSignersCached();
+    }
+  }
+
+  /**
+   * Run the state independent checks of a block ahead of {@link #pushBlock}: block and transaction
+   * ids, the merkle root, the witness signer and the transaction signers. The results are kept on
+   * the capsules and in the signer cache, so pushBlock only checks them against the state. A bad
+   * signature is left for pushBlock to report.
+   */
+  public void prefetchBlock(BlockCapsule block) {
+    block.getBlockId();
+    block.calcMerkleRoot();
+    try {
+      block.getWitnessSigner();
+      for (TransactionCapsule tx : block.getTransactions()) {
+        tx.getSigners(signerCache);
+      }
+    } catch (SignatureException | SignatureFormatException e) {
+      logger.debug("prefetch block {} stopped, {}", block.getNum(), e.getMessage());
     }
   }
 
@@ -1953,13 +2140,19 @@ public class Manager {
     }
     countDownLatch.await();
 
+    int hits = 0;
     for (Future<Boolean> future : futures) {
       try {
-        future.get();
+        if (future.get()) {
+          ++hits;
+        }
       } catch (ExecutionException e) {
         throw new ValidateSignatureException(e.getCause().getMessage());
       }
     }
+    logger.info("block num:{}, signer cache hits:{}/{}, saved:{}ms, hit rate:{}", block.getNum(),
+        hits, transSize, hits * signerCache.getAverageRecoverNanos() / 1_000_000,
+        String.format("%.2f", signerCache.stats().hitRate()));
   }
 
   public void rePush(TransactionCapsule tx) {
@@ -1968,7 +2161,7 @@ public class Manager {
     }
 
     try {
-      this.pushTransaction(tx);
+      this.pushTransaction(tx, false);
     } catch (ValidateSignatureException | ContractValidateException | ContractExeException
         | AccountResourceInsufficientException | VMIllegalException e) {
       logger.debug(e.getMessage(), e);
@@ -1984,6 +2177,8 @@ public class Manager {
       logger.debug("outOfSlotTime transaction");
     } catch (TooBigTransactionResultException e) {
       logger.debug("too big transaction result");
+    } catch (TooManyPendingException e) {
+      logger.debug("too many pending transaction");
     }
   }
 
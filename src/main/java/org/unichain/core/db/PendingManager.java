@@ -17,8 +17,7 @@ public class PendingManager implements AutoCloseable {
 
   public PendingManager(Manager db) {
     this.dbManager = db;
-    tmpTransactions.addAll(db.getPendingTransactions());
-    db.getPendingTransactions().clear();
+    tmpTransactions.addAll(db.getPendingPool().drain());
     //when called by block generation, the session already reset so this step have no effect
     db.getSession().reset();
   }
@@ -0,0 +1,64 @@
+package org.unichain.core.db;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.primitives.Ints;
+import com.google.protobuf.ByteString;
+import org.unichain.common.utils.Sha256Hash;
+
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Signer addresses recovered from transaction signatures, shared by pending pool admission and
+ * block validation so a transaction seen on both paths is recovered once.
+ *
+ * The entry is keyed by the raw data hash and the signatures, which fully determine the recovered
+ * addresses. Permission weights and thresholds are not cached, callers check them against the
+ * current account every time, so an entry stays valid whatever the owner's permissions become.
+ */
+public class SignerCache {
+
+  private static final long MAX_SIZE = 100_000;
+
+  private final Cache<Sha256Hash, List<byte[]>> cache = CacheBuilder.newBuilder()
+      .maximumSize(MAX_SIZE).recordStats().build();
+  private final LongAdder recoverNanos = new LongAdder();
+  private final LongAdder recovered = new LongAdder();
+
+  public static Sha256Hash key(byte[] rawHash, List<ByteString> signatures) {
+    MessageDigest digest = Sha256Hash.newDigest();
+    digest.update(rawHash);
+    // lengths keep one long signature apart from the same bytes split in several
+    digest.update(Ints.toByteArray(signatures.size()));
+    for (ByteString signature : signatures) {
+      digest.update(Ints.toByteArray(signature.size()));
+      digest.update(signature.asReadOnlyByteBuffer());
+    }
+    return Sha256Hash.wrap(digest.digest());
+  }
+
+  public List<byte[]> getIfPresent(Sha256Hash key) {
+    return cache.getIfPresent(key);
+  }
+
+  /**
+   * @param nanos time the recovery of the signers took, used to estimate the time hits save
+   */
+  public void put(Sha256Hash key, List<byte[]> signers, long nanos) {
+    cache.put(key, signers);
+    recoverNanos.add(nanos);
+    recovered.increment();
+  }
+
+  public long getAverageRecoverNanos() {
+    long n = recovered.sum();
+    return n == 0 ? 0 : recoverNanos.sum() / n;
+  }
+
+  public CacheStats stats() {
+    return cache.stats();
+  }
+}
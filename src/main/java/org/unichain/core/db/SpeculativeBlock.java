@@ -0,0 +1,82 @@
+package org.unichain.core.db;
+
+import com.google.protobuf.ByteString;
+import lombok.Getter;
+import org.unichain.common.utils.Sha256Hash;
+import org.unichain.core.capsule.BlockCapsule;
+import org.unichain.core.capsule.TransactionCapsule;
+import org.unichain.core.capsule.TransactionRetCapsule;
+import org.unichain.core.config.Parameter.ChainConstant;
+import org.unichain.protos.Protocol.TransactionInfo;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The next block of the local witness, executed ahead of its slot.
+ *
+ * It is opened on the head block, for the next slot, together with the pending session, and
+ * admitted transactions are executed against it in arrival order, so the pending state is the
+ * state after this block. At slot time the block is sealed with the results already computed if
+ * head, slot and witness are unchanged, instead of executing the transactions again.
+ *
+ * A transaction that can't join, because the block is full or its owner updated permissions
+ * earlier in the block, closes it: the later pending transactions are applied without the block,
+ * so from then on the pending state is ahead of it and nothing can be appended at seal time.
+ */
+public class SpeculativeBlock {
+
+  @Getter
+  private final BlockCapsule block;
+  @Getter
+  private final TransactionRetCapsule result;
+  @Getter
+  private final List<TransactionCapsule> transactions = new ArrayList<>();
+  // owners with a permission update in the block, their later transactions go to the next one
+  @Getter
+  private final Set<String> multiSignOwners = new HashSet<>();
+  @Getter
+  private boolean closed = false;
+
+  public SpeculativeBlock(BlockCapsule block) {
+    this.block = block;
+    this.result = new TransactionRetCapsule(block);
+  }
+
+  public boolean matches(Sha256Hash parentHash, long number, long when, ByteString witness,
+      int version) {
+    return block.getParentHash().equals(parentHash)
+        && block.getNum() == number
+        && block.getTimeStamp() == when
+        && block.getWitnessAddress().equals(witness)
+        && block.getInstance().getBlockHeader().getRawData().getVersion() == version;
+  }
+
+  /**
+   * @return true if the transaction is to be executed against the block, false closes the block
+   */
+  public boolean accept(TransactionCapsule tx, String owner) {
+    if (closed) {
+      return false;
+    }
+    if (multiSignOwners.contains(owner)
+        || block.getSerializedSize() + tx.getSerializedSize() + 3 > ChainConstant.BLOCK_SIZE) {
+      closed = true;
+      return false;
+    }
+    return true;
+  }
+
+  public void add(TransactionCapsule tx, String owner, boolean multiSign, TransactionInfo info) {
+    block.addTransaction(tx);
+    transactions.add(tx);
+    if (info != null) {
+      result.addTransactionInfo(info);
+    }
+    if (multiSign) {
+      multiSignOwners.add(owner);
+    }
+  }
+}
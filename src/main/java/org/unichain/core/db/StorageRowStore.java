@@ -1,24 +1,68 @@
 package org.unichain.core.db;
 
+import com.google.common.cache.CacheStats;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.unichain.core.capsule.StorageRowCapsule;
+import org.unichain.core.db.common.DecodedCache;
 
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contract storage rows, keyed by the composed row key.
+ *
+ * Rows read by SLOAD are kept in the store's decoded cache across transactions and blocks unless
+ * the storage properties size it otherwise. Every put, delete and revoked or popped snapshot key
+ * invalidates its entry, so reverted transactions and fork switches never leave a stale row.
+ */
 @Slf4j(topic = "DB")
 @Component
 public class StorageRowStore extends UnichainStoreWithRevoking<StorageRowCapsule> {
 
+  private static final long DEFAULT_ROW_CACHE_SIZE = 16L * 1024 * 1024;
+  private static final long REPORT_INTERVAL_MS = 60_000L;
+
+  private final AtomicLong lastReport = new AtomicLong(System.currentTimeMillis());
+  private CacheStats reported = new CacheStats(0, 0, 0, 0, 0, 0);
+
   @Autowired
   private StorageRowStore(@Value("storage-row") String dbName) {
     super(dbName);
   }
 
+  @Override
+  protected long getDefaultDecodedCacheSize() {
+    return DEFAULT_ROW_CACHE_SIZE;
+  }
+
   @Override
   public StorageRowCapsule get(byte[] key) {
     StorageRowCapsule row = getUnchecked(key);
+    if (getDecodedCache() != null) {
+      report();
+      // the cache hands out its own array, which the VM words of the row may change in place
+      if (row.getInstance() != null) {
+        row = new StorageRowCapsule(row.getInstance().clone());
+      }
+    }
     row.setRowKey(key);
     return row;
   }
+
+  private void report() {
+    long now = System.currentTimeMillis();
+    long last = lastReport.get();
+    if (now - last < REPORT_INTERVAL_MS || !lastReport.compareAndSet(last, now)) {
+      return;
+    }
+    DecodedCache cache = getDecodedCache();
+    CacheStats stats = cache.stats();
+    CacheStats delta = stats.minus(reported);
+    reported = stats;
+    logger.info("storage row cache size:{}, sload hits:{}, misses:{}, hit rate:{}, evictions:{}",
+        cache.size(), delta.hitCount(), delta.missCount(),
+        String.format("%.3f", delta.hitRate()), delta.evictionCount());
+  }
 }
@@ -0,0 +1,70 @@
+package org.unichain.core.db;
+
+import lombok.extern.slf4j.Slf4j;
+import org.unichain.common.utils.LatencyHistogram;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per stage latency of {@link Manager#pushTransaction(org.unichain.core.capsule.TransactionCapsule)}
+ * and the reasons transactions were turned away, logged once per report interval.
+ */
+@Slf4j(topic = "DB")
+public class TransactionAdmissionStats {
+
+  private static final long REPORT_INTERVAL_MS = 60_000L;
+
+  public enum Stage {
+    // tapos, expiration, size, dup and contract checks, run outside the manager lock
+    PRECHECK,
+    SIGNATURE,
+    LOCK_WAIT,
+    APPLY,
+    TOTAL
+  }
+
+  private final Map<Stage, LatencyHistogram> histograms = new EnumMap<>(Stage.class);
+  private final Map<String, LongAdder> rejections = new ConcurrentHashMap<>();
+  private final AtomicLong lastReport = new AtomicLong(System.currentTimeMillis());
+
+  public TransactionAdmissionStats() {
+    for (Stage stage : Stage.values()) {
+      histograms.put(stage, new LatencyHistogram());
+    }
+  }
+
+  public void record(Stage stage, long nanos) {
+    histograms.get(stage).record(nanos);
+  }
+
+  public void reject(Exception e) {
+    rejections.computeIfAbsent(e.getClass().getSimpleName(), k -> new LongAdder()).increment();
+  }
+
+  public LatencyHistogram getHistogram(Stage stage) {
+    return histograms.get(stage);
+  }
+
+  public void report() {
+    long now = System.currentTimeMillis();
+    long last = lastReport.get();
+    if (now - last < REPORT_INTERVAL_MS || !lastReport.compareAndSet(last, now)) {
+      return;
+    }
+
+    for (Stage stage : Stage.values()) {
+      LatencyHistogram histogram = histograms.get(stage);
+      logger.info("tx admission {} {}", stage, histogram);
+      histogram.reset();
+    }
+    if (!rejections.isEmpty()) {
+      StringBuilder sb = new StringBuilder();
+      rejections.forEach((reason, n) -> sb.append(reason).append(':').append(n.sumThenReset()).append(' '));
+      logger.info("tx admission rejected {}", sb.toString().trim());
+    }
+  }
+}
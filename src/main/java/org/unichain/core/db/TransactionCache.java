@@ -5,6 +5,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.unichain.core.capsule.BytesCapsule;
 import org.unichain.core.db2.common.TxCacheDB;
+import org.unichain.core.db2.core.RevokingDBWithCachingNewValue;
+import org.unichain.core.db2.core.SnapshotRoot;
 
 @Slf4j
 public class TransactionCache extends UnichainStoreWithRevoking<BytesCapsule> {
@@ -13,4 +15,13 @@ public class TransactionCache extends UnichainStoreWithRevoking<BytesCapsule> {
   public TransactionCache(@Value("trans-cache") String dbName) {
     super(dbName, TxCacheDB.class);
   }
+
+  /**
+   * @return true if the cache was reloaded from the file written by the last clean shutdown
+   */
+  public boolean isRestored() {
+    SnapshotRoot root = (SnapshotRoot) ((RevokingDBWithCachingNewValue) revokingDB).getHead()
+        .getRoot();
+    return ((TxCacheDB) root.getDb()).isRestored();
+  }
 }
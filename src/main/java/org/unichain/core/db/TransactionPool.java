@@ -0,0 +1,208 @@
+package org.unichain.core.db;
+
+import com.google.protobuf.ByteString;
+import lombok.extern.slf4j.Slf4j;
+import org.unichain.common.utils.LatencyHistogram;
+import org.unichain.common.utils.Sha256Hash;
+import org.unichain.core.capsule.ReceiptCapsule;
+import org.unichain.core.capsule.TransactionCapsule;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pending transactions applied on top of the head block, waiting for a block.
+ *
+ * Transactions are indexed by id, so removing one included in a block is O(1), and kept in
+ * arrival order per owner, as a later transaction of an owner may depend on an earlier one. The
+ * head of every owner queue sits in a priority index ordered by the fee paid per byte, then by
+ * arrival, which {@link #prioritized()} merges into the order a block should pick them up in.
+ * Expiration is indexed by second so expired transactions are evicted without a scan.
+ */
+@Slf4j(topic = "DB")
+public class TransactionPool {
+
+  private static final long REPORT_INTERVAL_MS = 60_000L;
+
+  private static final Comparator<Entry> PRIORITY = (e1, e2) -> {
+    int r = Long.compare(e2.priority, e1.priority);
+    return r != 0 ? r : Long.compare(e1.seq, e2.seq);
+  };
+
+  private static final class Entry {
+
+    private final TransactionCapsule tx;
+    private final Sha256Hash id;
+    private final ByteString owner;
+    private final long seq;
+    // fee per kilobyte, charged when the transaction was applied to the pending state
+    private final long priority;
+    private final long expirationSecond;
+
+    private Entry(TransactionCapsule tx, Sha256Hash id, ByteString owner, long seq) {
+      this.tx = tx;
+      this.id = id;
+      this.owner = owner;
+      this.seq = seq;
+      this.priority = priority(tx);
+      this.expirationSecond = tx.getExpiration() / 1000;
+    }
+  }
+
+  // insertion ordered, so draining hands the transactions back in arrival order
+  private final Map<Sha256Hash, Entry> byId = new LinkedHashMap<>();
+  private final Map<ByteString, LinkedHashSet<Entry>> byOwner = new HashMap<>();
+  private final TreeSet<Entry> heads = new TreeSet<>(PRIORITY);
+  private final TreeMap<Long, Set<Entry>> expirations = new TreeMap<>();
+  private long nextSeq = 0;
+
+  private final AtomicLong included = new AtomicLong();
+  private final AtomicLong expired = new AtomicLong();
+  private final LatencyHistogram age = new LatencyHistogram();
+  private long lastReport = System.currentTimeMillis();
+
+  private static long priority(TransactionCapsule tx) {
+    if (tx.getUnxTrace() == null) {
+      return 0;
+    }
+    ReceiptCapsule receipt = tx.getUnxTrace().getReceipt();
+    long fee = receipt.getNetFee() + receipt.getEnergyFee();
+    return fee * 1024 / Math.max(tx.getSerializedSize(), 1);
+  }
+
+  /**
+   * @return false if the transaction is already pending
+   */
+  public synchronized boolean add(TransactionCapsule tx) {
+    Sha256Hash id = tx.getTransactionId();
+    if (byId.containsKey(id)) {
+      return false;
+    }
+    if (tx.getPendingSince() == 0) {
+      tx.setPendingSince(System.currentTimeMillis());
+    }
+
+    byte[] owner = TransactionCapsule.getOwner(tx.getInstance().getRawData().getContract(0));
+    Entry entry = new Entry(tx, id, owner == null ? ByteString.EMPTY : ByteString.copyFrom(owner),
+        nextSeq++);
+    byId.put(id, entry);
+    LinkedHashSet<Entry> queue = byOwner.computeIfAbsent(entry.owner, k -> new LinkedHashSet<>());
+    queue.add(entry);
+    if (queue.size() == 1) {
+      heads.add(entry);
+    }
+    expirations.computeIfAbsent(entry.expirationSecond, k -> new HashSet<>()).add(entry);
+    return true;
+  }
+
+  /**
+   * Remove a transaction included in a block.
+   */
+  public synchronized boolean remove(TransactionCapsule tx) {
+    Entry entry = byId.get(tx.getTransactionId());
+    if (entry == null) {
+      return false;
+    }
+    unlink(entry);
+    included.incrementAndGet();
+    age.record((System.currentTimeMillis() - entry.tx.getPendingSince()) * 1_000_000);
+    entry.tx.setPendingSince(0);
+    return true;
+  }
+
+  /**
+   * Evict the transactions that expire before the head block time.
+   *
+   * @return the number of evicted transactions
+   */
+  public synchronized int evictExpired(long headBlockTime) {
+    int evicted = 0;
+    long now = System.currentTimeMillis();
+    SortedMap<Long, Set<Entry>> due = expirations.headMap(headBlockTime / 1000);
+    for (Set<Entry> bucket : new ArrayList<>(due.values())) {
+      for (Entry entry : new ArrayList<>(bucket)) {
+        unlink(entry);
+        age.record((now - entry.tx.getPendingSince()) * 1_000_000);
+        entry.tx.setPendingSince(0);
+        ++evicted;
+      }
+    }
+    expired.addAndGet(evicted);
+    return evicted;
+  }
+
+  /**
+   * @return every pending transaction, owners in priority order and each owner's in arrival order
+   */
+  public synchronized List<TransactionCapsule> prioritized() {
+    List<TransactionCapsule> result = new ArrayList<>(byId.size());
+    PriorityQueue<Entry> queue = new PriorityQueue<>(Math.max(heads.size(), 1), PRIORITY);
+    Map<ByteString, Iterator<Entry>> cursors = new HashMap<>();
+    for (Entry head : heads) {
+      Iterator<Entry> cursor = byOwner.get(head.owner).iterator();
+      cursor.next();
+      cursors.put(head.owner, cursor);
+      queue.add(head);
+    }
+    while (!queue.isEmpty()) {
+      Entry entry = queue.poll();
+      result.add(entry.tx);
+      Iterator<Entry> cursor = cursors.get(entry.owner);
+      if (cursor.hasNext()) {
+        queue.add(cursor.next());
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Empty the pool, the transactions are handed back in arrival order to be pushed again.
+   */
+  public synchronized List<TransactionCapsule> drain() {
+    List<TransactionCapsule> result = new ArrayList<>(byId.size());
+    byId.values().forEach(entry -> result.add(entry.tx));
+    byId.clear();
+    byOwner.clear();
+    heads.clear();
+    expirations.clear();
+    return result;
+  }
+
+  public synchronized int size() {
+    return byId.size();
+  }
+
+  public synchronized boolean isEmpty() {
+    return byId.isEmpty();
+  }
+
+  public synchronized void report() {
+    long now = System.currentTimeMillis();
+    if (now - lastReport < REPORT_INTERVAL_MS) {
+      return;
+    }
+    lastReport = now;
+    logger.info("pending pool size:{}, owners:{}, included:{}, expired:{}, age {}",
+        byId.size(), byOwner.size(), included.getAndSet(0), expired.getAndSet(0), age);
+    age.reset();
+  }
+
+  private void unlink(Entry entry) {
+    byId.remove(entry.id);
+
+    LinkedHashSet<Entry> queue = byOwner.get(entry.owner);
+    boolean wasHead = heads.remove(entry);
+    queue.remove(entry);
+    if (queue.isEmpty()) {
+      byOwner.remove(entry.owner);
+    } else if (wasHead) {
+      heads.add(queue.iterator().next());
+    }
+
+    Set<Entry> bucket = expirations.get(entry.expirationSecond);
+    bucket.remove(entry);
+    if (bucket.isEmpty()) {
+      expirations.remove(entry.expirationSecond);
+    }
+  }
+}
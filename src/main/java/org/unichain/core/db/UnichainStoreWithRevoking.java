@@ -7,6 +7,7 @@ import com.google.common.reflect.TypeToken;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import lombok.var;
+import org.apache.commons.lang3.ArrayUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.unichain.common.utils.Utils;
 import org.unichain.core.capsule.ProtoCapsule;
@@ -14,6 +15,8 @@ import org.unichain.core.capsule.TokenPoolCapsule;
 import org.unichain.core.config.args.Args;
 import org.unichain.core.db.api.IndexHelper;
 import org.unichain.core.db.common.DataPage;
+import org.unichain.core.db.common.DecodedCache;
+import org.unichain.core.db.common.iterator.DBIterator;
 import org.unichain.core.db2.common.DB;
 import org.unichain.core.db2.common.IRevokingDB;
 import org.unichain.core.db2.common.LevelDB;
@@ -26,6 +29,7 @@ import org.unichain.core.exception.ItemNotFoundException;
 import org.unichain.core.services.http.utils.Util;
 
 import javax.annotation.PostConstruct;
+import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.Iterator;
@@ -33,6 +37,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j(topic = "DB")
 public abstract class UnichainStoreWithRevoking<T extends ProtoCapsule> implements IUnichainChainBase<T> {
@@ -49,6 +54,10 @@ public abstract class UnichainStoreWithRevoking<T extends ProtoCapsule> implemen
   protected IndexHelper indexHelper;
   @Getter
   private String dbName;
+  // decoded values above the snapshots, only set for stores sized in the storage properties
+  @Getter
+  private DecodedCache decodedCache;
+  private volatile Constructor instanceConstructor;
 
   protected UnichainStoreWithRevoking(String dbName) {
     this.dbName = dbName;
@@ -80,6 +89,20 @@ public abstract class UnichainStoreWithRevoking<T extends ProtoCapsule> implemen
   @PostConstruct
   private void init() {
     revokingDatabase.add(revokingDB);
+    long cacheSize = Args.getInstance().getStorage()
+        .getDecodedCacheSizeByDbName(dbName, getDefaultDecodedCacheSize());
+    if (cacheSize > 0 && revokingDB instanceof RevokingDBWithCachingNewValue) {
+      decodedCache = new DecodedCache(cacheSize);
+      ((RevokingDBWithCachingNewValue) revokingDB).addChangeListener(decodedCache::invalidate);
+      logger.info("enable decoded cache for {}, size:{}", dbName, cacheSize);
+    }
+  }
+
+  /**
+   * Decoded cache size of the store when the storage properties don't set one, 0 = off.
+   */
+  protected long getDefaultDecodedCacheSize() {
+    return 0;
   }
 
   // only for test
@@ -104,20 +127,94 @@ public abstract class UnichainStoreWithRevoking<T extends ProtoCapsule> implemen
 
   @Override
   public T get(byte[] key) throws ItemNotFoundException, BadItemException {
-    return of(revokingDB.get(key));
+    if (decodedCache == null) {
+      return of(revokingDB.get(key));
+    }
+
+    T t = getCached(key, false);
+    if (t == null) {
+      throw new ItemNotFoundException();
+    }
+    return t;
   }
 
   @Override
   public T getUnchecked(byte[] key) {
-    byte[] value = revokingDB.getUnchecked(key);
+    try {
+      if (decodedCache != null) {
+        T t = getCached(key, false);
+        return t == null ? of(null) : t;
+      }
+
+      return of(revokingDB.getUnchecked(key));
+    } catch (BadItemException e) {
+      return null;
+    }
+  }
 
+  /**
+   * Value of key, null if it is absent or empty.
+   */
+  protected T getIfPresent(byte[] key) {
     try {
-      return of(value);
+      if (decodedCache != null) {
+        return getCached(key, true);
+      }
+
+      byte[] value = revokingDB.getUnchecked(key);
+      return ArrayUtils.isEmpty(value) ? null : of(value);
     } catch (BadItemException e) {
       return null;
     }
   }
 
+  /**
+   * Read through the decoded cache, null if the key is absent.
+   */
+  private T getCached(byte[] key, boolean emptyAsAbsent) throws BadItemException {
+    RevokingDBWithCachingNewValue db = (RevokingDBWithCachingNewValue) revokingDB;
+    Object instance = db.isSolidityMode() ? null : decodedCache.get(key);
+    if (instance != null) {
+      return ofInstance(instance);
+    }
+
+    // load and fill under the db lock so a concurrent put or revoke can't be overwritten
+    synchronized (db) {
+      byte[] value = db.getUnchecked(key);
+      if (value == null || (emptyAsAbsent && value.length == 0)) {
+        return null;
+      }
+
+      T t = of(value);
+      if (value.length > 0 && !db.isSolidityMode() && resolveInstanceConstructor(t)) {
+        decodedCache.put(key, t.getInstance(), value.length);
+      }
+      return t;
+    }
+  }
+
+  private boolean resolveInstanceConstructor(T t) {
+    if (instanceConstructor == null) {
+      try {
+        instanceConstructor = token.getRawType().getConstructor(t.getInstance().getClass());
+      } catch (NoSuchMethodException e) {
+        logger.warn("{} can't be built from {}, decoded cache of {} is unused",
+            token.getRawType().getSimpleName(), t.getInstance().getClass().getSimpleName(), dbName);
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @SuppressWarnings("unchecked")
+  private T ofInstance(Object instance) throws BadItemException {
+    try {
+      return (T) instanceConstructor.newInstance(instance);
+    } catch (IllegalAccessException | InstantiationException | InvocationTargetException e) {
+      throw new BadItemException(e.getMessage());
+    }
+  }
+
   public T of(byte[] value) throws BadItemException {
     try {
       Constructor constructor = token.getRawType().getConstructor(byte[].class);
@@ -141,12 +238,18 @@ public abstract class UnichainStoreWithRevoking<T extends ProtoCapsule> implemen
 
   @Override
   public void close() {
+    if (decodedCache != null) {
+      logger.info("decoded cache of {}: {}", dbName, decodedCache.stats());
+    }
     revokingDB.close();
   }
 
   @Override
   public void reset() {
     revokingDB.reset();
+    if (decodedCache != null) {
+      decodedCache.invalidateAll();
+    }
   }
 
   @Override
@@ -160,8 +263,32 @@ public abstract class UnichainStoreWithRevoking<T extends ProtoCapsule> implemen
     });
   }
 
+  /**
+   * Stream at most limit entries with key >= from in key order, merged across the snapshot
+   * layers and the db without materializing them. Close the stream to release the db iterator.
+   */
+  public Stream<Map.Entry<byte[], T>> scan(byte[] from, long limit) {
+    DBIterator dbIterator = revokingDB.iterator(from);
+    return Streams.stream(dbIterator)
+        .limit(limit)
+        .map(e -> {
+          try {
+            return Maps.immutableEntry(e.getKey(), of(e.getValue()));
+          } catch (BadItemException e1) {
+            throw new RuntimeException(e1);
+          }
+        })
+        .onClose(() -> {
+          try {
+            dbIterator.close();
+          } catch (IOException e) {
+            logger.error("close iterator of {} error.", dbName, e);
+          }
+        });
+  }
+
   public long size() {
-    return Streams.stream(revokingDB.iterator()).count();
+    return revokingDB.size();
   }
 
   public void setMode(boolean mode) {
@@ -1,6 +1,5 @@
 package org.unichain.core.db;
 
-import org.apache.commons.lang3.ArrayUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
@@ -16,7 +15,6 @@ public class VotesStore extends UnichainStoreWithRevoking<VotesCapsule> {
 
   @Override
   public VotesCapsule get(byte[] key) {
-    byte[] value = revokingDB.getUnchecked(key);
-    return ArrayUtils.isEmpty(value) ? null : new VotesCapsule(value);
+    return getIfPresent(key);
   }
 }
\ No newline at end of file
@@ -2,7 +2,6 @@ package org.unichain.core.db;
 
 import com.google.common.collect.Streams;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.ArrayUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
@@ -32,7 +31,6 @@ public class WitnessStore extends UnichainStoreWithRevoking<WitnessCapsule> {
 
   @Override
   public WitnessCapsule get(byte[] key) {
-    byte[] value = revokingDB.getUnchecked(key);
-    return ArrayUtils.isEmpty(value) ? null : new WitnessCapsule(value);
+    return getIfPresent(key);
   }
 }
@@ -74,8 +74,7 @@ public abstract class AbstractIndex<E extends ProtoCapsule<T>, T> implements Ifa
 
   @Override
   public void fill() {
-    int size = Iterables.size(database);
-    if (size != 0 && !indexPath.exists()) {
+    if (database.iterator().hasNext() && !indexPath.exists()) {
       database.forEach(e -> add(e.getKey()));
     }
   }
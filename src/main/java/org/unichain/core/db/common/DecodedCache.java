@@ -0,0 +1,57 @@
+package org.unichain.core.db.common;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import lombok.AllArgsConstructor;
+
+/**
+ * Weight bounded cache of decoded protobuf instances keyed by store key.
+ *
+ * Protobuf messages are immutable, so a cached instance can be wrapped into a fresh capsule on
+ * every hit without callers sharing mutable state.
+ */
+public class DecodedCache {
+
+  @AllArgsConstructor
+  private static class Entry {
+
+    private Object instance;
+    private int weight;
+  }
+
+  private final Cache<WrappedByteArray, Entry> cache;
+
+  public DecodedCache(long maxWeight) {
+    cache = CacheBuilder.newBuilder()
+        .maximumWeight(maxWeight)
+        .weigher((WrappedByteArray k, Entry v) -> k.getBytes().length + v.weight)
+        .recordStats()
+        .build();
+  }
+
+  public Object get(byte[] key) {
+    Entry entry = cache.getIfPresent(WrappedByteArray.of(key));
+    return entry == null ? null : entry.instance;
+  }
+
+  public void put(byte[] key, Object instance, int weight) {
+    cache.put(WrappedByteArray.copyOf(key), new Entry(instance, weight));
+  }
+
+  public void invalidate(byte[] key) {
+    cache.invalidate(WrappedByteArray.of(key));
+  }
+
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  public long size() {
+    return cache.size();
+  }
+
+  public CacheStats stats() {
+    return cache.stats();
+  }
+}
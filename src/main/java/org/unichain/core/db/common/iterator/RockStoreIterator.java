@@ -12,11 +12,18 @@ public final class RockStoreIterator implements DBIterator {
 
   private RocksIterator dbIterator;
   private boolean first = true;
+  // first key to return, null to start at the first key of the db
+  private byte[] from;
 
   public RockStoreIterator(RocksIterator dbIterator) {
     this.dbIterator = dbIterator;
   }
 
+  public RockStoreIterator(RocksIterator dbIterator, byte[] from) {
+    this.dbIterator = dbIterator;
+    this.from = from;
+  }
+
   @Override
   public void close() throws IOException {
     dbIterator.close();
@@ -28,7 +35,11 @@ public final class RockStoreIterator implements DBIterator {
     // true is first item
     try {
       if (first) {
-        dbIterator.seekToFirst();
+        if (from == null) {
+          dbIterator.seekToFirst();
+        } else {
+          dbIterator.seek(from);
+        }
         first = false;
       }
       if (!(hasNext = dbIterator.isValid())) { // false is last item
@@ -11,11 +11,18 @@ public final class StoreIterator implements org.unichain.core.db.common.iterator
 
   private DBIterator dbIterator;
   private boolean first = true;
+  // first key to return, null to start at the first key of the db
+  private byte[] from;
 
   public StoreIterator(DBIterator dbIterator) {
     this.dbIterator = dbIterator;
   }
 
+  public StoreIterator(DBIterator dbIterator, byte[] from) {
+    this.dbIterator = dbIterator;
+    this.from = from;
+  }
+
   @Override
   public void close() throws IOException {
     dbIterator.close();
@@ -27,7 +34,11 @@ public final class StoreIterator implements org.unichain.core.db.common.iterator
     // true is first item
     try {
       if (first) {
-        dbIterator.seekToFirst();
+        if (from == null) {
+          dbIterator.seekToFirst();
+        } else {
+          dbIterator.seek(from);
+        }
         first = false;
       }
 
@@ -0,0 +1,196 @@
+package org.unichain.core.db2.common;
+
+import lombok.extern.slf4j.Slf4j;
+import org.unichain.core.db.common.WrappedByteArray;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead log of the snapshot layers being flushed.
+ *
+ * Each flush appends one batch record {@code [long length][int crc32][entries]}, an entry being
+ * {@code [int key length][key][int value length][value]}. Records are written and read in
+ * bounded chunks, so a batch may be larger than the heap allows in one buffer. The batch is
+ * written before the roots
+ * and the log is truncated back to the batch offset once every root has it, so on startup the
+ * log only holds batches the roots may have missed. A record with a short payload or a bad
+ * checksum was torn by a crash before any root was written and is dropped.
+ */
+@Slf4j(topic = "DB")
+public class CheckpointLog {
+
+  private static final String LOG_NAME = "checkpoint.log";
+  private static final int HEADER_SIZE = 12;
+  private static final int CHUNK_SIZE = 1 << 20;
+
+  private final Path file;
+  private FileChannel channel;
+
+  public CheckpointLog(Path dir) {
+    this.file = dir.resolve(LOG_NAME);
+  }
+
+  public void open() throws IOException {
+    Files.createDirectories(file.getParent());
+    channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+  }
+
+  public boolean isEmpty() throws IOException {
+    return channel.size() == 0;
+  }
+
+  /**
+   * Feed every complete batch to {@code consumer} in write order and cut a torn tail.
+   *
+   * @return the number of batches replayed
+   */
+  public int replay(BiConsumer<byte[], byte[]> consumer) throws IOException {
+    int batches = 0;
+    long offset = 0;
+    long size = channel.size();
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    while (offset + HEADER_SIZE <= size) {
+      header.clear();
+      readFully(header, offset);
+      long length = header.getLong(0);
+      int crc = header.getInt(8);
+      if (length < 0 || length > size - offset - HEADER_SIZE
+          || checksum(offset + HEADER_SIZE, length) != crc) {
+        break;
+      }
+
+      // the checksum held, so the entries are the ones written
+      channel.position(offset + HEADER_SIZE);
+      DataInputStream payload = new DataInputStream(
+          new BufferedInputStream(Channels.newInputStream(channel), CHUNK_SIZE));
+      for (long read = 0; read < length; ) {
+        byte[] key = new byte[payload.readInt()];
+        payload.readFully(key);
+        byte[] value = new byte[payload.readInt()];
+        payload.readFully(value);
+        consumer.accept(key, value);
+        read += 8L + key.length + value.length;
+      }
+      offset += HEADER_SIZE + length;
+      ++batches;
+    }
+
+    if (offset != size) {
+      logger.warn("checkpoint log truncated from {} to {} bytes", size, offset);
+      channel.truncate(offset);
+    }
+    return batches;
+  }
+
+  /**
+   * @return the offset the batch starts at, to be passed to {@link #truncate(long)} once the
+   * roots hold it
+   */
+  public long append(Map<WrappedByteArray, WrappedByteArray> batch, boolean sync)
+      throws IOException {
+    // the header goes first, so the checksum is taken in a pass of its own
+    long length = 0;
+    CRC32 crc = new CRC32();
+    ByteBuffer prefix = ByteBuffer.allocate(4);
+    for (Map.Entry<WrappedByteArray, WrappedByteArray> e : batch.entrySet()) {
+      for (byte[] bytes : new byte[][]{e.getKey().getBytes(), e.getValue().getBytes()}) {
+        prefix.putInt(0, bytes.length);
+        crc.update(prefix.array());
+        crc.update(bytes);
+        length += 4L + bytes.length;
+      }
+    }
+
+    long offset = channel.size();
+    ByteBuffer chunk = ByteBuffer.allocate(CHUNK_SIZE);
+    chunk.putLong(length).putInt((int) crc.getValue());
+    long position = offset;
+    for (Map.Entry<WrappedByteArray, WrappedByteArray> e : batch.entrySet()) {
+      for (byte[] bytes : new byte[][]{e.getKey().getBytes(), e.getValue().getBytes()}) {
+        if (chunk.remaining() < 4) {
+          position = write(chunk, position);
+        }
+        chunk.putInt(bytes.length);
+        for (int i = 0; i < bytes.length; ) {
+          if (!chunk.hasRemaining()) {
+            position = write(chunk, position);
+          }
+          int n = Math.min(chunk.remaining(), bytes.length - i);
+          chunk.put(bytes, i, n);
+          i += n;
+        }
+      }
+    }
+    write(chunk, position);
+    if (sync) {
+      channel.force(false);
+    }
+    return offset;
+  }
+
+  public void truncate(long offset) throws IOException {
+    channel.truncate(offset);
+  }
+
+  public long size() throws IOException {
+    return channel.size();
+  }
+
+  public void close() throws IOException {
+    if (channel != null) {
+      channel.close();
+      channel = null;
+    }
+  }
+
+  private void readFully(ByteBuffer buffer, long position) throws IOException {
+    long p = position;
+    while (buffer.hasRemaining()) {
+      int n = channel.read(buffer, p);
+      if (n < 0) {
+        throw new IOException("unexpected end of checkpoint log");
+      }
+      p += n;
+    }
+  }
+
+  /**
+   * Write out the chunk and clear it.
+   *
+   * @return the position after the chunk
+   */
+  private long write(ByteBuffer chunk, long position) throws IOException {
+    chunk.flip();
+    long p = position;
+    while (chunk.hasRemaining()) {
+      p += channel.write(chunk, p);
+    }
+    chunk.clear();
+    return p;
+  }
+
+  private int checksum(long position, long length) throws IOException {
+    CRC32 crc = new CRC32();
+    ByteBuffer chunk = ByteBuffer.allocate((int) Math.min(CHUNK_SIZE, length));
+    for (long p = position, end = position + length; p < end; ) {
+      chunk.clear();
+      chunk.limit((int) Math.min(chunk.capacity(), end - p));
+      readFully(chunk, p);
+      crc.update(chunk.array(), 0, chunk.limit());
+      p += chunk.limit();
+    }
+    return (int) crc.getValue();
+  }
+}
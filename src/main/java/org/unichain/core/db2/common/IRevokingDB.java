@@ -1,6 +1,7 @@
 package org.unichain.core.db2.common;
 
 import org.unichain.core.db.common.WrappedByteArray;
+import org.unichain.core.db.common.iterator.DBIterator;
 import org.unichain.core.exception.ItemNotFoundException;
 
 import java.util.Map;
@@ -34,4 +35,11 @@ public interface IRevokingDB extends Iterable<Map.Entry<byte[], byte[]>> {
   Set<byte[]> getValuesPrevious(byte[] key, long limit);
 
   Map<WrappedByteArray, WrappedByteArray> getAllValues();
+
+  long size();
+
+  /**
+   * Iterate in key order starting at the first key >= from, the iterator must be closed.
+   */
+  DBIterator iterator(byte[] from);
 }
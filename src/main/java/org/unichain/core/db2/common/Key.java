@@ -22,6 +22,11 @@ public final class Key {
     return new Key(WrappedByteArray.of(bytes));
   }
 
+  // no copy, for the maps in this package that only read it
+  byte[] rawBytes() {
+    return data.getBytes();
+  }
+
   public byte[] getBytes() {
     byte[] key = data.getBytes();
     if (key == null) {
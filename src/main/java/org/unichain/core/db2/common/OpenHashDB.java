@@ -0,0 +1,270 @@
+package org.unichain.core.db2.common;
+
+import com.google.common.collect.Maps;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Snapshot layer map with linear probing open addressing.
+ *
+ * Key and value bytes are appended to a single slab array and the table only holds offsets, so a
+ * put costs no per-entry objects and {@link #find(byte[], int)} looks a key up without any
+ * allocation. Overwritten bytes stay in the slab until the next resize compacts it.
+ *
+ * Not thread safe, callers are serialized by the revoking db like for {@link HashDB}.
+ */
+public class OpenHashDB implements DB<Key, Value> {
+
+  private static final int INITIAL_CAPACITY = 16;
+  private static final int EMPTY = -1;
+  private static final int NULL_VALUE = -1;
+
+  private int[] hashes;
+  private int[] keyOffsets;
+  private int[] keyLengths;
+  private int[] valueOffsets;
+  private int[] valueLengths;
+  private byte[] operators;
+
+  private byte[] slab = new byte[256];
+  private int slabSize = 0;
+  private int garbage = 0;
+  private int size = 0;
+
+  public OpenHashDB() {
+    allocate(INITIAL_CAPACITY);
+  }
+
+  public static int hash(byte[] key) {
+    int h = Arrays.hashCode(key);
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * @return the slot holding key, -1 if key is not in this layer
+   */
+  public int find(byte[] key, int hash) {
+    int mask = hashes.length - 1;
+    for (int i = hash & mask; keyOffsets[i] != EMPTY; i = (i + 1) & mask) {
+      if (hashes[i] == hash && keyEquals(i, key)) {
+        return i;
+      }
+    }
+    return EMPTY;
+  }
+
+  /**
+   * @return a copy of the value in slot, null for a delete marker
+   */
+  public byte[] valueAt(int slot) {
+    int length = valueLengths[slot];
+    if (length == NULL_VALUE) {
+      return null;
+    }
+    return Arrays.copyOfRange(slab, valueOffsets[slot], valueOffsets[slot] + length);
+  }
+
+  @Override
+  public Value get(Key key) {
+    int slot = find(key.rawBytes(), hash(key.rawBytes()));
+    return slot == EMPTY ? null : valueOf(slot);
+  }
+
+  @Override
+  public void put(Key key, Value value) {
+    byte[] k = key.rawBytes();
+    put(k, hash(k), value.getOperator().getValue(), value.rawBytes());
+  }
+
+  private void put(byte[] key, int hash, byte operator, byte[] value) {
+    int slot = find(key, hash);
+    if (slot == EMPTY) {
+      if ((size + 1) * 4 > hashes.length * 3) {
+        resize(hashes.length * 2);
+      }
+      slot = hash & (hashes.length - 1);
+      while (keyOffsets[slot] != EMPTY) {
+        slot = (slot + 1) & (hashes.length - 1);
+      }
+      hashes[slot] = hash;
+      keyOffsets[slot] = append(key);
+      keyLengths[slot] = key.length;
+      ++size;
+    } else if (valueLengths[slot] != NULL_VALUE) {
+      garbage += valueLengths[slot];
+    }
+
+    operators[slot] = operator;
+    if (value == null) {
+      valueOffsets[slot] = 0;
+      valueLengths[slot] = NULL_VALUE;
+    } else {
+      valueOffsets[slot] = append(value);
+      valueLengths[slot] = value.length;
+    }
+
+    if (garbage > slabSize / 2 && garbage > 4096) {
+      resize(hashes.length);
+    }
+  }
+
+  @Override
+  public long size() {
+    return size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public void remove(Key key) {
+    byte[] k = key.rawBytes();
+    int slot = find(k, hash(k));
+    if (slot == EMPTY) {
+      return;
+    }
+
+    garbage += keyLengths[slot] + Math.max(valueLengths[slot], 0);
+    --size;
+    // backward shift deletion keeps every probe sequence free of holes
+    int mask = hashes.length - 1;
+    int hole = slot;
+    for (int i = (hole + 1) & mask; keyOffsets[i] != EMPTY; i = (i + 1) & mask) {
+      int home = hashes[i] & mask;
+      if (((i - home) & mask) >= ((i - hole) & mask)) {
+        move(i, hole);
+        hole = i;
+      }
+    }
+    keyOffsets[hole] = EMPTY;
+  }
+
+  @Override
+  public Iterator<Map.Entry<Key, Value>> iterator() {
+    return new Iterator<Map.Entry<Key, Value>>() {
+      private int next = advance(0);
+
+      private int advance(int from) {
+        int i = from;
+        while (i < keyOffsets.length && keyOffsets[i] == EMPTY) {
+          ++i;
+        }
+        return i;
+      }
+
+      @Override
+      public boolean hasNext() {
+        return next < keyOffsets.length;
+      }
+
+      @Override
+      public Map.Entry<Key, Value> next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        int slot = next;
+        next = advance(next + 1);
+        return Maps.immutableEntry(Key.of(Arrays.copyOfRange(slab, keyOffsets[slot],
+            keyOffsets[slot] + keyLengths[slot])), valueOf(slot));
+      }
+    };
+  }
+
+  private Value valueOf(int slot) {
+    return Value.of(Value.Operator.valueOf(operators[slot]), valueAt(slot));
+  }
+
+  private boolean keyEquals(int slot, byte[] key) {
+    int length = keyLengths[slot];
+    if (length != key.length) {
+      return false;
+    }
+    int offset = keyOffsets[slot];
+    for (int i = 0; i < length; i++) {
+      if (slab[offset + i] != key[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int append(byte[] bytes) {
+    if (slabSize + bytes.length > slab.length) {
+      slab = Arrays.copyOf(slab, Math.max(slab.length * 2, slabSize + bytes.length));
+    }
+    int offset = slabSize;
+    System.arraycopy(bytes, 0, slab, offset, bytes.length);
+    slabSize += bytes.length;
+    return offset;
+  }
+
+  private void move(int from, int to) {
+    hashes[to] = hashes[from];
+    keyOffsets[to] = keyOffsets[from];
+    keyLengths[to] = keyLengths[from];
+    valueOffsets[to] = valueOffsets[from];
+    valueLengths[to] = valueLengths[from];
+    operators[to] = operators[from];
+  }
+
+  private void allocate(int capacity) {
+    hashes = new int[capacity];
+    keyOffsets = new int[capacity];
+    Arrays.fill(keyOffsets, EMPTY);
+    keyLengths = new int[capacity];
+    valueOffsets = new int[capacity];
+    valueLengths = new int[capacity];
+    operators = new byte[capacity];
+  }
+
+  // rehash into a table of the given capacity and copy only the live bytes to a new slab
+  private void resize(int capacity) {
+    int[] oldHashes = hashes;
+    int[] oldKeyOffsets = keyOffsets;
+    int[] oldKeyLengths = keyLengths;
+    int[] oldValueOffsets = valueOffsets;
+    int[] oldValueLengths = valueLengths;
+    byte[] oldOperators = operators;
+    byte[] oldSlab = slab;
+
+    allocate(capacity);
+    slab = new byte[Math.max(256, slabSize - garbage)];
+    slabSize = 0;
+    garbage = 0;
+    int mask = capacity - 1;
+    for (int i = 0; i < oldKeyOffsets.length; i++) {
+      if (oldKeyOffsets[i] == EMPTY) {
+        continue;
+      }
+      int slot = oldHashes[i] & mask;
+      while (keyOffsets[slot] != EMPTY) {
+        slot = (slot + 1) & mask;
+      }
+      hashes[slot] = oldHashes[i];
+      keyOffsets[slot] = append(oldSlab, oldKeyOffsets[i], oldKeyLengths[i]);
+      keyLengths[slot] = oldKeyLengths[i];
+      if (oldValueLengths[i] == NULL_VALUE) {
+        valueLengths[slot] = NULL_VALUE;
+      } else {
+        valueOffsets[slot] = append(oldSlab, oldValueOffsets[i], oldValueLengths[i]);
+        valueLengths[slot] = oldValueLengths[i];
+      }
+      operators[slot] = oldOperators[i];
+    }
+  }
+
+  private int append(byte[] from, int offset, int length) {
+    if (slabSize + length > slab.length) {
+      slab = Arrays.copyOf(slab, Math.max(slab.length * 2, slabSize + length));
+    }
+    int start = slabSize;
+    System.arraycopy(from, offset, slab, start, length);
+    slabSize += length;
+    return start;
+  }
+}
@@ -1,70 +1,231 @@
 package org.unichain.core.db2.common;
 
-import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Multimap;
 import com.google.common.primitives.Longs;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.unichain.core.config.args.Args;
 import org.unichain.core.db.common.WrappedByteArray;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+/**
+ * Transaction id -> block number cache.
+ *
+ * Ids are bucketed in a ring indexed by {@code blockNum % BLOCK_COUNT}, so the cache always holds
+ * the ids of the latest {@code BLOCK_COUNT} block numbers and evicting the eldest block is a
+ * single slot reset instead of a scan over every cached block number.
+ *
+ * When created for a database directory, every cached id is also appended to a {@link TxCacheFile}
+ * so the next start can reload the cache instead of replaying the recent blocks. The segment is
+ * compacted on a background thread, only the copy of the live ids is taken under the lock.
+ */
 @Slf4j(topic = "DB")
 public class TxCacheDB implements DB<byte[], byte[]>, Flusher {
 
   // > 65_536(= 2^16) blocks, that is the number of the reference block
-  private final int BLOCK_COUNT = 70_000;
+  private static final int BLOCK_COUNT = 70_000;
 
-  private Map<Key, Long> db = new WeakHashMap<>();
-  private Multimap<Long, Key> blockNumMap = ArrayListMultimap.create();
+  private static final long EMPTY_SLOT = -1L;
+
+  // rough retained size of one cached id: HashMap node, Key, WrappedByteArray, 32 bytes id, Long
+  // value and the slot list reference
+  private static final long BYTES_PER_ENTRY = 32 + 16 + 16 + 48 + 16 + 8;
+
+  private static final ExecutorService compactExecutor = Executors.newSingleThreadExecutor(
+      new ThreadFactoryBuilder().setNameFormat("tx-cache-compact").setDaemon(true).build());
+
+  private Map<Key, Long> db = new HashMap<>();
+  private long[] slotBlockNum = new long[BLOCK_COUNT];
+  private List<Key>[] slots = newSlots();
+
+  // the highest block number seen, the ring covers (maxBlockNum - BLOCK_COUNT, maxBlockNum]
+  private long maxBlockNum = EMPTY_SLOT;
+
+  private TxCacheFile file;
+
+  // a running compaction swaps the segment only if no reset or close changed the id meanwhile
+  private boolean compacting;
+  private long compactionId;
+
+  // true if the cache was reloaded from the segment written by a clean shutdown
+  @Getter
+  private boolean restored;
+
+  public TxCacheDB() {
+    Arrays.fill(slotBlockNum, EMPTY_SLOT);
+  }
+
+  public TxCacheDB(String parentName, String name) {
+    this();
+    long start = System.currentTimeMillis();
+    TxCacheFile txCacheFile = new TxCacheFile(
+        Paths.get(parentName, Args.getInstance().getStorage().getDbDirectory(), name));
+    try {
+      long records = txCacheFile.open(this::putInMemory);
+      restored = records >= 0;
+      if (needsCompaction(txCacheFile)) {
+        Snapshot live = new Snapshot();
+        txCacheFile.replace(txCacheFile.write(live.keys, live.blockNums), live.keys.length,
+            txCacheFile.getLength(), txCacheFile.getRecords());
+        logger.info("compact tx cache segment from {} to {} records", records, live.keys.length);
+      }
+      logger.info("load tx cache, restored:{}, records:{}, unxids:{}, cost:{}",
+          restored, records, db.size(), System.currentTimeMillis() - start);
+    } catch (IOException e) {
+      throw new IllegalStateException("open tx cache file error.", e);
+    }
+    this.file = txCacheFile;
+  }
+
+  /**
+   * Rewrite the segment with the live ids once evicted blocks make up more than half of it, so
+   * it stays proportional to the cache however long the node runs.
+   */
+  private boolean needsCompaction(TxCacheFile txCacheFile) {
+    return txCacheFile.getRecords() > 2 * db.size();
+  }
+
+  private void startCompaction() {
+    if (compacting || !needsCompaction(file)) {
+      return;
+    }
+    compacting = true;
+    long id = ++compactionId;
+    Snapshot live = new Snapshot();
+    TxCacheFile txCacheFile = file;
+    long fromLength = txCacheFile.getLength();
+    long fromRecords = txCacheFile.getRecords();
+    compactExecutor.execute(() -> {
+      long start = System.currentTimeMillis();
+      Path compacted = null;
+      try {
+        compacted = txCacheFile.write(live.keys, live.blockNums);
+        synchronized (this) {
+          if (!compacting || id != compactionId) {
+            return;
+          }
+          compacting = false;
+          txCacheFile.replace(compacted, live.keys.length, fromLength, fromRecords);
+          compacted = null;
+          logger.info("compact tx cache segment from {} to {} records, cost:{}", fromRecords,
+              txCacheFile.getRecords(), System.currentTimeMillis() - start);
+        }
+      } catch (IOException e) {
+        logger.error("compact tx cache segment error.", e);
+        synchronized (this) {
+          if (id == compactionId) {
+            compacting = false;
+          }
+        }
+      } finally {
+        if (compacted != null) {
+          try {
+            Files.deleteIfExists(compacted);
+          } catch (IOException e) {
+            logger.warn("delete compacted tx cache segment error.", e);
+          }
+        }
+      }
+    });
+  }
+
+  private void stopCompaction() {
+    compacting = false;
+    ++compactionId;
+  }
 
   @Override
-  public byte[] get(byte[] key) {
+  public synchronized byte[] get(byte[] key) {
     Long v = db.get(Key.of(key));
     return v == null ? null : Longs.toByteArray(v);
   }
 
   @Override
-  public void put(byte[] key, byte[] value) {
+  public synchronized void put(byte[] key, byte[] value) {
     if (key == null || value == null) {
       return;
     }
 
+    long blockNum = Longs.fromByteArray(value);
+    if (putInMemory(key, blockNum) && file != null) {
+      try {
+        file.append(key, blockNum);
+      } catch (IOException e) {
+        throw new IllegalStateException("write tx cache file error.", e);
+      }
+    }
+  }
+
+  private boolean putInMemory(byte[] key, long blockNum) {
+    if (maxBlockNum != EMPTY_SLOT && blockNum <= maxBlockNum - BLOCK_COUNT) {
+      // older than the eldest block that can still be referenced
+      return false;
+    }
+
+    int index = (int) Math.floorMod(blockNum, (long) BLOCK_COUNT);
+    if (slotBlockNum[index] != blockNum) {
+      evict(index);
+      slotBlockNum[index] = blockNum;
+      slots[index] = new ArrayList<>();
+    }
+
+    if (blockNum > maxBlockNum) {
+      maxBlockNum = blockNum;
+    }
+
     Key k = Key.copyOf(key);
-    Long v = Longs.fromByteArray(value);
-    blockNumMap.put(v, k);
-    db.put(k, v);
-    removeEldest();
-  }
-
-  private void removeEldest() {
-    Set<Long> keys = blockNumMap.keySet();
-    if (keys.size() > BLOCK_COUNT) {
-      keys.stream()
-          .min(Long::compareTo)
-          .ifPresent(k -> {
-            blockNumMap.removeAll(k);
-            logger.debug("******removeEldest block number:{}, block count:{}", k, keys.size());
-          });
+    slots[index].add(k);
+    db.put(k, blockNum);
+    return true;
+  }
+
+  private void evict(int index) {
+    long eldest = slotBlockNum[index];
+    if (eldest == EMPTY_SLOT) {
+      return;
     }
+
+    List<Key> keys = slots[index];
+    keys.forEach(k -> db.remove(k, eldest));
+    slots[index] = null;
+    slotBlockNum[index] = EMPTY_SLOT;
+    logger.debug("******removeEldest block number:{}, removed:{}, cached:{}, memory:{} bytes/tx",
+        eldest, keys.size(), db.size(), BYTES_PER_ENTRY);
+  }
+
+  /**
+   * Approximate heap retained by the cached ids, in bytes.
+   */
+  public synchronized long getEstimatedMemory() {
+    return db.size() * BYTES_PER_ENTRY;
   }
 
   @Override
-  public long size() {
+  public synchronized long size() {
     return db.size();
   }
 
   @Override
-  public boolean isEmpty() {
+  public synchronized boolean isEmpty() {
     return db.isEmpty();
   }
 
   @Override
-  public void remove(byte[] key) {
+  public synchronized void remove(byte[] key) {
     if (key != null) {
       db.remove(Key.of(key));
     }
@@ -77,20 +238,74 @@ public class TxCacheDB implements DB<byte[], byte[]>, Flusher {
   }
 
   @Override
-  public void flush(Map<WrappedByteArray, WrappedByteArray> batch) {
+  public synchronized void flush(Map<WrappedByteArray, WrappedByteArray> batch) {
     batch.forEach((k, v) -> this.put(k.getBytes(), v.getBytes()));
+    if (file != null) {
+      try {
+        file.sync();
+      } catch (IOException e) {
+        throw new IllegalStateException("write tx cache file error.", e);
+      }
+      startCompaction();
+    }
   }
 
   @Override
-  public void close() {
-    reset();
+  public synchronized void close() {
+    stopCompaction();
+    if (file != null) {
+      try {
+        file.close();
+      } catch (IOException e) {
+        logger.error("close tx cache file error.", e);
+      }
+      file = null;
+    }
+    clear();
     db = null;
-    blockNumMap = null;
+    slots = null;
+    slotBlockNum = null;
   }
 
   @Override
-  public void reset() {
+  public synchronized void reset() {
+    stopCompaction();
+    clear();
+    if (file != null) {
+      try {
+        file.truncate();
+      } catch (IOException e) {
+        throw new IllegalStateException("reset tx cache file error.", e);
+      }
+    }
+  }
+
+  private void clear() {
     db.clear();
-    blockNumMap.clear();
+    Arrays.fill(slotBlockNum, EMPTY_SLOT);
+    Arrays.fill(slots, null);
+    maxBlockNum = EMPTY_SLOT;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static List<Key>[] newSlots() {
+    return new List[BLOCK_COUNT];
+  }
+
+  /**
+   * Copy of the live ids, the keys are immutable so only the references are copied.
+   */
+  private class Snapshot {
+
+    private final Key[] keys = new Key[db.size()];
+    private final long[] blockNums = new long[db.size()];
+
+    private Snapshot() {
+      int i = 0;
+      for (Map.Entry<Key, Long> e : db.entrySet()) {
+        keys[i] = e.getKey();
+        blockNums[i++] = e.getValue();
+      }
+    }
   }
 }
@@ -0,0 +1,192 @@
+package org.unichain.core.db2.common;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Append-only segment file backing {@link TxCacheDB}.
+ *
+ * Each record is {@code [int length][transaction id][long block number]}. A marker file is written
+ * on clean close and removed on open, so a segment without marker (crash, kill -9) is discarded and
+ * the cache is rebuilt from the recent blocks instead.
+ *
+ * A compacted segment is written to a temporary file next to the segment and renamed over it, so
+ * the segment on disk is always either the old or the new one.
+ */
+@Slf4j(topic = "DB")
+public class TxCacheFile {
+
+  private static final String SEGMENT_NAME = "tx-cache.dat";
+  private static final String CLEAN_MARKER_NAME = "tx-cache.clean";
+  private static final String COMPACT_SUFFIX = ".compact";
+  // transaction ids are 32 bytes, anything outside this is a corrupt record
+  private static final int MAX_KEY_LENGTH = 64;
+
+  private final Path segment;
+  private final Path cleanMarker;
+  private DataOutputStream out;
+  // records in the segment, live or not
+  @Getter
+  private long records;
+  // bytes in the segment
+  @Getter
+  private long length;
+
+  public TxCacheFile(Path dir) {
+    this.segment = dir.resolve(SEGMENT_NAME);
+    this.cleanMarker = dir.resolve(CLEAN_MARKER_NAME);
+  }
+
+  /**
+   * Replay the segment left by a clean shutdown into {@code consumer} and open it for appending.
+   *
+   * @return the number of records replayed, -1 if there was nothing usable on disk
+   */
+  public long open(ObjLongConsumer<byte[]> consumer) throws IOException {
+    Files.createDirectories(segment.getParent());
+    // left by a compaction the node stopped in
+    try (DirectoryStream<Path> stale = Files.newDirectoryStream(segment.getParent(),
+        SEGMENT_NAME + "*" + COMPACT_SUFFIX)) {
+      for (Path path : stale) {
+        Files.deleteIfExists(path);
+      }
+    }
+    long count = -1;
+    if (Files.deleteIfExists(cleanMarker) && Files.exists(segment)) {
+      count = load(consumer);
+    } else {
+      Files.deleteIfExists(segment);
+    }
+
+    out = new DataOutputStream(new BufferedOutputStream(
+        new FileOutputStream(segment.toFile(), true), 1 << 16));
+    records = Math.max(count, 0);
+    length = Files.size(segment);
+    return count;
+  }
+
+  private long load(ObjLongConsumer<byte[]> consumer) throws IOException {
+    long count = 0;
+    long offset = 0;
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+        new FileInputStream(segment.toFile()), 1 << 16))) {
+      while (true) {
+        int length = in.readInt();
+        if (length <= 0 || length > MAX_KEY_LENGTH) {
+          logger.warn("tx cache segment has a bad record length {} at {}", length, offset);
+          break;
+        }
+        byte[] key = new byte[length];
+        in.readFully(key);
+        long blockNum = in.readLong();
+        consumer.accept(key, blockNum);
+        offset += 4 + length + 8;
+        ++count;
+      }
+    } catch (EOFException e) {
+      // a torn tail record is dropped below, like a bad one
+    }
+
+    try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+      if (file.length() != offset) {
+        logger.warn("tx cache segment truncated from {} to {} bytes", file.length(), offset);
+        file.setLength(offset);
+      }
+    }
+    return count;
+  }
+
+  public void append(byte[] key, long blockNum) throws IOException {
+    out.writeInt(key.length);
+    out.write(key);
+    out.writeLong(blockNum);
+    ++records;
+    length += 4 + key.length + 8;
+  }
+
+  public void sync() throws IOException {
+    out.flush();
+  }
+
+  public void truncate() throws IOException {
+    out.close();
+    out = new DataOutputStream(new BufferedOutputStream(
+        new FileOutputStream(segment.toFile(), false), 1 << 16));
+    records = 0;
+    length = 0;
+  }
+
+  /**
+   * Write the records to a new segment file without touching the current one, so it can run
+   * while records are appended to the current one.
+   *
+   * @return the new segment file, to pass to {@link #replace}
+   */
+  public Path write(Key[] keys, long[] blockNums) throws IOException {
+    Path compacted = Files.createTempFile(segment.getParent(), SEGMENT_NAME, COMPACT_SUFFIX);
+    try (DataOutputStream compactOut = new DataOutputStream(new BufferedOutputStream(
+        new FileOutputStream(compacted.toFile()), 1 << 16))) {
+      for (int i = 0; i < keys.length; i++) {
+        byte[] key = keys[i].rawBytes();
+        compactOut.writeInt(key.length);
+        compactOut.write(key);
+        compactOut.writeLong(blockNums[i]);
+      }
+    } catch (IOException e) {
+      Files.deleteIfExists(compacted);
+      throw e;
+    }
+    return compacted;
+  }
+
+  /**
+   * Replace the segment with one made by {@link #write}, carrying over the records appended to
+   * the segment since it was {@code fromLength} bytes and {@code fromRecords} records long.
+   */
+  public void replace(Path compacted, long compactedRecords, long fromLength, long fromRecords)
+      throws IOException {
+    out.flush();
+    long compactedLength;
+    try (FileChannel from = FileChannel.open(segment, StandardOpenOption.READ);
+        FileChannel to = FileChannel.open(compacted, StandardOpenOption.WRITE,
+            StandardOpenOption.APPEND)) {
+      long position = fromLength;
+      while (position < length) {
+        position += from.transferTo(position, length - position, to);
+      }
+      compactedLength = to.size();
+    }
+    Files.move(compacted, segment, StandardCopyOption.ATOMIC_MOVE,
+        StandardCopyOption.REPLACE_EXISTING);
+    out.close();
+    out = new DataOutputStream(new BufferedOutputStream(
+        new FileOutputStream(segment.toFile(), true), 1 << 16));
+    records = compactedRecords + records - fromRecords;
+    length = compactedLength;
+  }
+
+  /**
+   * Flush pending records and mark the segment as complete for the next start.
+   */
+  public void close() throws IOException {
+    out.close();
+    Files.write(cleanMarker, new byte[0]);
+  }
+}
@@ -75,6 +75,11 @@ public final class Value {
     return new Value(operator, WrappedByteArray.of(data));
   }
 
+  // no copy, for the maps in this package that only read it
+  byte[] rawBytes() {
+    return data.getBytes();
+  }
+
   public byte[] getBytes() {
     byte[] value = data.getBytes();
     if (value == null) {
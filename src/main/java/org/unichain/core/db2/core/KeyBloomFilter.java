@@ -0,0 +1,90 @@
+package org.unichain.core.db2.core;
+
+/**
+ * Bloom filter over the keys written to one snapshot layer.
+ *
+ * Keys are never removed, a key deleted from the layer only costs a false positive. Once more
+ * keys were added than it was sized for, the caller rebuilds it from the layer with twice the
+ * layer size, so rewrites of the same keys cost an amortized O(1) as well.
+ */
+class KeyBloomFilter {
+
+  private static final int BITS_PER_KEY = 10;
+  private static final int HASHES = 3;
+  private static final int INITIAL_KEYS = 64;
+
+  private long[] bits;
+  private int mask;
+  private int capacity;
+  private int count;
+
+  KeyBloomFilter() {
+    allocate(INITIAL_KEYS);
+  }
+
+  /**
+   * 64-bit FNV-1a finished with the murmur3 mixer, computed once per lookup and shared by every
+   * layer of the chain.
+   */
+  static long hash(byte[] key) {
+    long h = 0xcbf29ce484222325L;
+    for (byte b : key) {
+      h ^= b;
+      h *= 0x100000001b3L;
+    }
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  boolean mightContain(long hash) {
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32);
+    for (int i = 0; i < HASHES; i++) {
+      int bit = (h1 + i * h2) & mask;
+      if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return false if the filter is full and must be rebuilt with {@link #grow(int)}
+   */
+  boolean add(long hash) {
+    if (count >= capacity) {
+      return false;
+    }
+    set(hash);
+    ++count;
+    return true;
+  }
+
+  /**
+   * Clear the filter and size it for twice the given number of keys.
+   */
+  void grow(int keys) {
+    allocate(Math.max(keys * 2, INITIAL_KEYS));
+  }
+
+  private void set(long hash) {
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32);
+    for (int i = 0; i < HASHES; i++) {
+      int bit = (h1 + i * h2) & mask;
+      bits[bit >>> 6] |= 1L << bit;
+    }
+  }
+
+  private void allocate(int keys) {
+    int size = Integer.highestOneBit(Math.max(keys * BITS_PER_KEY, 64) - 1) << 1;
+    bits = new long[size >>> 6];
+    mask = size - 1;
+    capacity = keys;
+    count = 0;
+  }
+}
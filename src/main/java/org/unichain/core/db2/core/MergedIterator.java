@@ -0,0 +1,116 @@
+package org.unichain.core.db2.core;
+
+import com.google.common.primitives.UnsignedBytes;
+import org.unichain.core.db.common.iterator.DBIterator;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Key ordered k-way merge of the sorted snapshot layers and the root db iterator.
+ *
+ * For a key present in several sources the newest layer wins, and a delete marker hides the key.
+ * Only one entry per source is held at a time, the root is read lazily as the merge advances.
+ */
+final class MergedIterator implements DBIterator {
+
+  static final Comparator<byte[]> ORDER = UnsignedBytes.lexicographicalComparator();
+
+  private static final class Cursor {
+
+    // 0 for the newest layer, the root has the highest rank
+    private final int rank;
+    private final Iterator<Map.Entry<byte[], byte[]>> source;
+    private Map.Entry<byte[], byte[]> current;
+
+    private Cursor(int rank, Iterator<Map.Entry<byte[], byte[]>> source) {
+      this.rank = rank;
+      this.source = source;
+    }
+
+    private boolean advance() {
+      current = source.hasNext() ? source.next() : null;
+      return current != null;
+    }
+  }
+
+  private final PriorityQueue<Cursor> queue = new PriorityQueue<>((c1, c2) -> {
+    int r = ORDER.compare(c1.current.getKey(), c2.current.getKey());
+    return r != 0 ? r : Integer.compare(c1.rank, c2.rank);
+  });
+  private final DBIterator root;
+  private Map.Entry<byte[], byte[]> next;
+
+  /**
+   * @param layers sorted entries of every layer, newest first, a null value is a delete marker
+   * @param root root db iterator already positioned at from
+   */
+  MergedIterator(List<List<Map.Entry<byte[], byte[]>>> layers, DBIterator root, byte[] from) {
+    this.root = root;
+    int rank = 0;
+    for (List<Map.Entry<byte[], byte[]>> layer : layers) {
+      int start = lowerBound(layer, from);
+      add(new Cursor(rank++, layer.subList(start, layer.size()).iterator()));
+    }
+    add(new Cursor(rank, root));
+  }
+
+  private void add(Cursor cursor) {
+    if (cursor.advance()) {
+      queue.add(cursor);
+    }
+  }
+
+  private static int lowerBound(List<Map.Entry<byte[], byte[]>> layer, byte[] from) {
+    int low = 0;
+    int high = layer.size();
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (ORDER.compare(layer.get(mid).getKey(), from) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  @Override
+  public boolean hasNext() {
+    while (next == null && !queue.isEmpty()) {
+      Cursor top = queue.poll();
+      Map.Entry<byte[], byte[]> entry = top.current;
+      if (top.advance()) {
+        queue.add(top);
+      }
+      // older versions of the same key are shadowed
+      while (!queue.isEmpty() && Arrays.equals(queue.peek().current.getKey(), entry.getKey())) {
+        Cursor shadowed = queue.poll();
+        if (shadowed.advance()) {
+          queue.add(shadowed);
+        }
+      }
+
+      if (entry.getValue() != null) {
+        next = entry;
+      }
+    }
+    return next != null;
+  }
+
+  @Override
+  public Map.Entry<byte[], byte[]> next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    Map.Entry<byte[], byte[]> r = next;
+    next = null;
+    return r;
+  }
+
+  @Override
+  public void close() throws IOException {
+    queue.clear();
+    root.close();
+  }
+}
@@ -6,11 +6,13 @@ import lombok.Getter;
 import org.unichain.common.utils.ByteUtil;
 import org.unichain.core.config.args.Args;
 import org.unichain.core.db.common.WrappedByteArray;
+import org.unichain.core.db.common.iterator.DBIterator;
 import org.unichain.core.db2.common.*;
 import org.unichain.core.exception.ItemNotFoundException;
 
+import java.io.IOException;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 public class RevokingDBWithCachingNewValue implements IRevokingDB {
   private ThreadLocal<Boolean> mode = new ThreadLocal<>();
@@ -18,6 +20,8 @@ public class RevokingDBWithCachingNewValue implements IRevokingDB {
   @Getter
   private String dbName;
   private Class<? extends DB> clz;
+  // notified with every key whose visible value may have changed, under the lock of this db
+  private Consumer<byte[]> changeListener;
 
   public RevokingDBWithCachingNewValue(String dbName, Class<? extends DB> clz) {
     this.dbName = dbName;
@@ -47,6 +51,29 @@ public class RevokingDBWithCachingNewValue implements IRevokingDB {
     return head();
   }
 
+  public synchronized void addChangeListener(Consumer<byte[]> listener) {
+    changeListener = changeListener == null ? listener : changeListener.andThen(listener);
+  }
+
+  /**
+   * @return true if the calling thread reads the solidified view
+   */
+  public boolean isSolidityMode() {
+    return mode.get() != null && !mode.get();
+  }
+
+  /**
+   * Drop the head snapshot, the keys it held are reported to the change listener.
+   */
+  public synchronized void retreat() {
+    Snapshot current = head();
+    head = current.retreat();
+    if (changeListener != null && Snapshot.isImpl(current)) {
+      Streams.stream(((SnapshotImpl) current).getDb())
+          .forEach(e -> changeListener.accept(e.getKey().getBytes()));
+    }
+  }
+
   public synchronized void setHead(Snapshot head) {
     this.head = head;
   }
@@ -69,11 +96,17 @@ public class RevokingDBWithCachingNewValue implements IRevokingDB {
   @Override
   public synchronized void put(byte[] key, byte[] value) {
     head().put(key, value);
+    if (changeListener != null) {
+      changeListener.accept(key);
+    }
   }
 
   @Override
   public synchronized void delete(byte[] key) {
     head().remove(key);
+    if (changeListener != null) {
+      changeListener.accept(key);
+    }
   }
 
   @Override
@@ -137,79 +170,95 @@ public class RevokingDBWithCachingNewValue implements IRevokingDB {
     return result;
   }
 
+  /**
+   * Merge the snapshot layers below head with the root in key order, starting at the first key
+   * >= from. The layers are captured when the iterator is created, the root is read lazily.
+   */
+  @Override
+  public synchronized DBIterator iterator(byte[] from) {
+    Snapshot current = head();
+    List<List<Map.Entry<byte[], byte[]>>> layers = new ArrayList<>();
+    for (Snapshot snapshot = current; Snapshot.isImpl(snapshot); snapshot = snapshot.getPrevious()) {
+      layers.add(((SnapshotImpl) snapshot).sortedEntries());
+    }
+    return new MergedIterator(layers, ((SnapshotRoot) current.getRoot()).iterator(from), from);
+  }
+
   //for blockstore
-  private Set<byte[]> getValuesNext(Snapshot head, byte[] key, long limit) {
+  @Override
+  public Set<byte[]> getValuesNext(byte[] key, long limit) {
     if (limit <= 0) {
       return Collections.emptySet();
     }
 
-    Map<WrappedByteArray, WrappedByteArray> collection = new HashMap<>();
-    if (head.getPrevious() != null) {
-      ((SnapshotImpl) head).collect(collection);
-    }
-
-    Map<WrappedByteArray, WrappedByteArray> levelDbMap = new HashMap<>();
-
-    if (((SnapshotRoot) head.getRoot()).db.getClass() == LevelDB.class) {
-      ((LevelDB) ((SnapshotRoot) head.getRoot()).db).getDb().getNext(key, limit).entrySet().stream()
-          .map(e -> Maps
-              .immutableEntry(WrappedByteArray.of(e.getKey()),
-                  WrappedByteArray.of(e.getValue())))
-          .forEach(e -> levelDbMap.put(e.getKey(), e.getValue()));
-    } else if (((SnapshotRoot) head.getRoot()).db.getClass() == RocksDB.class) {
-      ((RocksDB) ((SnapshotRoot) head.getRoot()).db).getDb().getNext(key, limit).entrySet().stream()
-          .map(e -> Maps
-              .immutableEntry(WrappedByteArray.of(e.getKey()),
-                  WrappedByteArray.of(e.getValue())))
-          .forEach(e -> levelDbMap.put(e.getKey(), e.getValue()));
+    Set<byte[]> result = new HashSet<>();
+    try (DBIterator iterator = iterator(key)) {
+      while (result.size() < limit && iterator.hasNext()) {
+        result.add(iterator.next().getValue());
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
     }
-
-    levelDbMap.putAll(collection);
-
-    return levelDbMap.entrySet().stream()
-        .sorted((e1, e2) -> ByteUtil.compare(e1.getKey().getBytes(), e2.getKey().getBytes()))
-        .filter(e -> ByteUtil.greaterOrEquals(e.getKey().getBytes(), key))
-        .limit(limit)
-        .map(Map.Entry::getValue)
-        .map(WrappedByteArray::getBytes)
-        .collect(Collectors.toSet());
-  }
-
-  @Override
-  public Set<byte[]> getValuesNext(byte[] key, long limit) {
-    return getValuesNext(head(), key, limit);
+    return result;
   }
 
   @Override
   public Set<byte[]> getValuesPrevious(byte[] key, long limit) {
-    Map<WrappedByteArray, WrappedByteArray> collection = new HashMap<>();
-    if (head.getPrevious() != null) {
-      ((SnapshotImpl) head).collect(collection);
+    if (limit <= 0) {
+      return Collections.emptySet();
     }
+
     int precision = Long.SIZE / Byte.SIZE;
     Set<byte[]> result = new HashSet<>();
-    for (WrappedByteArray p : collection.keySet()) {
-      if (ByteUtil.lessOrEquals(ByteUtil.parseBytes(p.getBytes(), 0, precision), key)
-          && limit > 0) {
-        result.add(collection.get(p).getBytes());
-        limit--;
+    try (DBIterator iterator = iterator(new byte[0])) {
+      while (result.size() < limit && iterator.hasNext()) {
+        Map.Entry<byte[], byte[]> entry = iterator.next();
+        if (entry.getKey().length < precision) {
+          continue;
+        }
+        if (ByteUtil.less(key, ByteUtil.parseBytes(entry.getKey(), 0, precision))) {
+          break;
+        }
+        result.add(entry.getValue());
       }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
     }
-    if (limit <= 0) {
-      return result;
-    }
-    List<byte[]> list = null;
-    if (((SnapshotRoot) head.getRoot()).db.getClass() == LevelDB.class) {
-      list = ((LevelDB) ((SnapshotRoot) head.getRoot()).db).getDb()
-          .getPrevious(key, limit, precision).values().stream()
-          .collect(Collectors.toList());
-    } else if (((SnapshotRoot) head.getRoot()).db.getClass() == RocksDB.class) {
-      list = ((RocksDB) ((SnapshotRoot) head.getRoot()).db).getDb()
-          .getPrevious(key, limit, precision).values().stream()
-          .collect(Collectors.toList());
-    }
-    result.addAll(list);
-    return result.stream().limit(limit).collect(Collectors.toSet());
+    return result;
+  }
+
+  /**
+   * Number of keys in the current view. The root count is rebuilt with a full scan only the first
+   * time it is unknown, afterwards the layers keep it up to date.
+   */
+  @Override
+  public synchronized long size() {
+    Snapshot current = head();
+    SnapshotRoot root = (SnapshotRoot) current.getRoot();
+    long delta = countDelta(current);
+    if (root.getCount() < 0) {
+      long total = Streams.stream(current.iterator()).count();
+      root.setCount(total - delta);
+      return total;
+    }
+    return root.getCount() + delta;
+  }
+
+  /**
+   * @return the number of keys in the current view, -1 if it is unknown until a scan
+   */
+  public synchronized long getKnownSize() {
+    Snapshot current = head();
+    long count = ((SnapshotRoot) current.getRoot()).getCount();
+    return count < 0 ? -1 : count + countDelta(current);
+  }
+
+  private static long countDelta(Snapshot head) {
+    long delta = 0;
+    for (Snapshot snapshot = head; Snapshot.isImpl(snapshot); snapshot = snapshot.getPrevious()) {
+      delta += ((SnapshotImpl) snapshot).getCountDelta();
+    }
+    return delta;
   }
 
   public Map<WrappedByteArray, WrappedByteArray> getAllValues() {
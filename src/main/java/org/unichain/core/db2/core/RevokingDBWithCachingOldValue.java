@@ -7,6 +7,7 @@ import org.unichain.core.config.args.Args;
 import org.unichain.core.db.AbstractRevokingStore;
 import org.unichain.core.db.RevokingStore;
 import org.unichain.core.db.common.WrappedByteArray;
+import org.unichain.core.db.common.iterator.DBIterator;
 import org.unichain.core.db2.common.IRevokingDB;
 import org.unichain.core.exception.ItemNotFoundException;
 
@@ -137,6 +138,16 @@ public class RevokingDBWithCachingOldValue implements IRevokingDB {
         .collect(Collectors.toSet());
   }
 
+  @Override
+  public long size() {
+    return dbSource.getTotal();
+  }
+
+  @Override
+  public DBIterator iterator(byte[] from) {
+    return dbSource.iterator(from);
+  }
+
   public Map<WrappedByteArray, WrappedByteArray> getAllValues() {
     Map<WrappedByteArray, WrappedByteArray> result = new HashMap<>();
     dbSource.getAll().forEach((key, value) -> {
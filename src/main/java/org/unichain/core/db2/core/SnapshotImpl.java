@@ -5,28 +5,55 @@ import com.google.common.collect.Iterators;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Streams;
 import lombok.Getter;
+import org.unichain.core.config.args.Args;
+import org.unichain.core.config.args.Storage;
 import org.unichain.core.db.common.WrappedByteArray;
+import org.unichain.core.db2.common.DB;
 import org.unichain.core.db2.common.HashDB;
 import org.unichain.core.db2.common.Key;
+import org.unichain.core.db2.common.OpenHashDB;
 import org.unichain.core.db2.common.Value;
 
 import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
 
 public class SnapshotImpl extends AbstractSnapshot<Key, Value> {
 
+  // chain lookups and the layer maps they had to probe, since the last flush
+  private static final LongAdder GETS = new LongAdder();
+  private static final LongAdder PROBES = new LongAdder();
+
   @Getter
   protected Snapshot root;
 
+  // keys written to this layer, lets a lookup skip layers that can't hold the key
+  private KeyBloomFilter filter = new KeyBloomFilter();
+
+  // entries of this layer in key order, built by the first range scan after a write
+  private List<Map.Entry<byte[], byte[]>> sorted;
+
+  // keys created minus keys deleted by this layer relative to the layers below, null until asked
+  // for after a write, so the write path never reads the layers below
+  private volatile Long countDelta;
+
   SnapshotImpl(Snapshot snapshot) {
     root = snapshot.getRoot();
     previous = snapshot;
     snapshot.setNext(this);
     synchronized (this) {
-      db = new HashDB();
+      db = newDB();
     }
 
   }
 
+  private static DB<Key, Value> newDB() {
+    Storage storage = Args.getInstance().getStorage();
+    if (storage != null && "OPENHASH".equalsIgnoreCase(storage.getSnapshotMap())) {
+      return new OpenHashDB();
+    }
+    return new HashDB();
+  }
+
   @Override
   public byte[] get(byte[] key) {
     return get(this, key);
@@ -38,20 +65,81 @@ public class SnapshotImpl extends AbstractSnapshot<Key, Value> {
     Preconditions.checkNotNull(value, "value in db is not null.");
 
     db.put(Key.copyOf(key), Value.copyOf(Value.Operator.PUT, value));
+    index(key);
   }
 
   @Override
   public void remove(byte[] key) {
     Preconditions.checkNotNull(key, "key in db is not null.");
     db.put(Key.of(key), Value.of(Value.Operator.DELETE, null));
+    index(key);
+  }
+
+  /**
+   * Keys this layer creates minus keys it deletes, looked up in the layers below once per write
+   * burst. Valid as long as the view below is unchanged, which holds until this layer is merged
+   * down or dropped.
+   */
+  long getCountDelta() {
+    Long delta = countDelta;
+    if (delta == null) {
+      long d = 0;
+      for (Map.Entry<Key, Value> e : db) {
+        boolean before = previous.get(e.getKey().getBytes()) != null;
+        boolean after = e.getValue().getBytes() != null;
+        d += (after ? 1 : 0) - (before ? 1 : 0);
+      }
+      delta = d;
+      countDelta = delta;
+    }
+    return delta;
+  }
+
+  private void index(byte[] key) {
+    sorted = null;
+    countDelta = null;
+    if (!filter.add(KeyBloomFilter.hash(key))) {
+      filter.grow((int) db.size());
+      Streams.stream(db).forEach(e -> filter.add(KeyBloomFilter.hash(e.getKey().getBytes())));
+    }
+  }
+
+  /**
+   * @return average number of layer maps probed per chain lookup since the last call
+   */
+  static double getAndResetLayersProbedPerGet() {
+    long gets = GETS.sumThenReset();
+    long probes = PROBES.sumThenReset();
+    return gets == 0 ? 0 : (double) probes / gets;
   }
 
   private byte[] get(Snapshot head, byte[] key) {
     Snapshot snapshot = head;
     Value value;
+    Key k = null;
+    int hash = OpenHashDB.hash(key);
+    long bloomHash = KeyBloomFilter.hash(key);
+    GETS.increment();
     while (Snapshot.isImpl(snapshot)) {
-      if ((value = ((SnapshotImpl) snapshot).db.get(Key.of(key))) != null) {
-        return value.getBytes();
+      if (!((SnapshotImpl) snapshot).filter.mightContain(bloomHash)) {
+        snapshot = snapshot.getPrevious();
+        continue;
+      }
+
+      PROBES.increment();
+      DB<Key, Value> layer = ((SnapshotImpl) snapshot).db;
+      if (layer instanceof OpenHashDB) {
+        int slot = ((OpenHashDB) layer).find(key, hash);
+        if (slot >= 0) {
+          return ((OpenHashDB) layer).valueAt(slot);
+        }
+      } else {
+        if (k == null) {
+          k = Key.of(key);
+        }
+        if ((value = layer.get(k)) != null) {
+          return value.getBytes();
+        }
       }
 
       snapshot = snapshot.getPrevious();
@@ -75,7 +163,10 @@ public class SnapshotImpl extends AbstractSnapshot<Key, Value> {
   @Override
   public void merge(Snapshot from) {
     SnapshotImpl fromImpl = (SnapshotImpl) from;
-    Streams.stream(fromImpl.db).forEach(e -> db.put(e.getKey(), e.getValue()));
+    Streams.stream(fromImpl.db).forEach(e -> {
+      db.put(e.getKey(), e.getValue());
+      index(e.getKey().getBytes());
+    });
   }
 
   // we have a 4x4 matrix of all possibilities when merging previous snapshot and current snapshot :
@@ -138,6 +229,8 @@ public class SnapshotImpl extends AbstractSnapshot<Key, Value> {
             throw new IllegalStateException();
           }
         });
+
+    Streams.stream(fromImpl.db).forEach(e -> index(e.getKey().getBytes()));
   }
 
   @Override
@@ -164,6 +257,21 @@ public class SnapshotImpl extends AbstractSnapshot<Key, Value> {
             e -> !keys.contains(WrappedByteArray.of(e.getKey()))));
   }
 
+  /**
+   * @return the entries of this layer sorted by key, a null value marks a deleted key
+   */
+  List<Map.Entry<byte[], byte[]>> sortedEntries() {
+    if (sorted == null) {
+      List<Map.Entry<byte[], byte[]>> entries = new ArrayList<>((int) db.size());
+      for (Map.Entry<Key, Value> e : db) {
+        entries.add(Maps.immutableEntry(e.getKey().getBytes(), e.getValue().getBytes()));
+      }
+      entries.sort((e1, e2) -> MergedIterator.ORDER.compare(e1.getKey(), e2.getKey()));
+      sorted = Collections.unmodifiableList(entries);
+    }
+    return sorted;
+  }
+
   synchronized void collect(Map<WrappedByteArray, WrappedByteArray> all) {
     Snapshot next = getRoot().getNext();
     while (next != null) {
@@ -13,18 +13,27 @@ import org.unichain.core.config.args.Args;
 import org.unichain.core.db.CheckTmpStore;
 import org.unichain.core.db.RevokingDatabase;
 import org.unichain.core.db.common.WrappedByteArray;
+import org.unichain.core.db2.common.CheckpointLog;
 import org.unichain.core.db2.common.DB;
 import org.unichain.core.db2.common.IRevokingDB;
 import org.unichain.core.db2.common.Key;
 import org.unichain.core.db2.common.Value;
 import org.unichain.core.exception.RevokingStoreIllegalStateException;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
 @Slf4j(topic = "DB")
@@ -32,6 +41,7 @@ public class SnapshotManager implements RevokingDatabase {
   private static final int DEFAULT_STACK_MAX_SIZE = 256;
   public static final int DEFAULT_MAX_FLUSH_COUNT = 500;
   public static final int DEFAULT_MIN_FLUSH_COUNT = 1;
+  private static final String COUNTS_NAME = "key-counts.properties";
   @Getter
   private List<RevokingDBWithCachingNewValue> dbs = new ArrayList<>();
   @Getter
@@ -50,6 +60,25 @@ public class SnapshotManager implements RevokingDatabase {
 
   private Map<String, ListeningExecutorService> flushServices = new HashMap<>();
 
+  // frozen layers are written to the roots by this thread while new sessions keep advancing
+  private final ListeningExecutorService flushExecutor = MoreExecutors.listeningDecorator(
+      Executors.newSingleThreadExecutor(
+          new ThreadFactoryBuilder().setNameFormat("snapshot-flush").build()));
+  private volatile Future<?> pendingFlush = Futures.immediateFuture(null);
+
+  // totals since start, read by tools measuring the cost of flushing
+  private final LongAdder flushes = new LongAdder();
+  private final LongAdder flushMillis = new LongAdder();
+  private final LongAdder stallMillis = new LongAdder();
+
+  // guards the links of the snapshot chains against the relink done by the flush thread
+  private final Object chainLock = new Object();
+
+  private Path checkpointDir;
+  private CheckpointLog checkpointLog;
+  // start of the oldest batch in the checkpoint log the roots may not hold yet, -1 if none
+  private long unflushedOffset = -1;
+
   @Autowired
   @Setter
   @Getter
@@ -100,12 +129,16 @@ public class SnapshotManager implements RevokingDatabase {
   }
 
   private void advance() {
-    dbs.forEach(db -> db.setHead(db.getHead().advance()));
+    synchronized (chainLock) {
+      dbs.forEach(db -> db.setHead(db.getHead().advance()));
+    }
     ++size;
   }
 
   private void retreat() {
-    dbs.forEach(db -> db.setHead(db.getHead().retreat()));
+    synchronized (chainLock) {
+      dbs.forEach(RevokingDBWithCachingNewValue::retreat);
+    }
     --size;
   }
 
@@ -136,6 +169,11 @@ public class SnapshotManager implements RevokingDatabase {
       return;
     }
 
+    if (size == 1) {
+      // the layer below head may still be written to the roots
+      waitFlushDone();
+    }
+
     disabled = true;
 
     try {
@@ -163,6 +201,10 @@ public class SnapshotManager implements RevokingDatabase {
       throw new RevokingStoreIllegalStateException("there is not snapshot to be popped");
     }
 
+    if (size == 1) {
+      waitFlushDone();
+    }
+
     disabled = true;
 
     try {
@@ -212,14 +254,26 @@ public class SnapshotManager implements RevokingDatabase {
       System.out.println(e.getMessage() + e);
       Thread.currentThread().interrupt();
     }
+    waitFlushDone();
+    flushExecutor.shutdown();
+    if (checkpointLog != null) {
+      saveCounts();
+      try {
+        checkpointLog.close();
+      } catch (IOException e) {
+        logger.error("close checkpoint log error.", e);
+      }
+    }
     checkTmpStore.getDbSource().closeDB();
     System.err.println("******** end to pop revokingDb ********");
   }
 
   public void updateSolidity(int hops) {
-    for (int i = 0; i < hops; i++) {
-      for (RevokingDBWithCachingNewValue db : dbs) {
-        db.getHead().updateSolidity();
+    synchronized (chainLock) {
+      for (int i = 0; i < hops; i++) {
+        for (RevokingDBWithCachingNewValue db : dbs) {
+          db.getHead().updateSolidity();
+        }
       }
     }
   }
@@ -228,22 +282,30 @@ public class SnapshotManager implements RevokingDatabase {
     return flushCount >= maxFlushCount;
   }
 
-  private void refresh() {
+  private boolean refresh(int count) {
     List<ListenableFuture<?>> futures = new ArrayList<>(dbs.size());
     for (RevokingDBWithCachingNewValue db : dbs) {
-      futures.add(flushServices.get(db.getDbName()).submit(() -> refreshOne(db)));
+      futures.add(flushServices.get(db.getDbName()).submit(() -> refreshOne(db, count)));
     }
     Future<?> future = Futures.allAsList(futures);
     try {
       future.get();
     } catch (InterruptedException e) {
       Thread.currentThread().interrupt();
+      return false;
     } catch (ExecutionException e) {
       logger.error("Snapshot manager error: {} --> ", e.getMessage(), e);
+      return false;
+    }
+
+    // every root holds the frozen layers now, unlink them in one step
+    synchronized (chainLock) {
+      dbs.forEach(db -> relink(db, count));
     }
+    return true;
   }
 
-  private void refreshOne(RevokingDBWithCachingNewValue db) {
+  private void refreshOne(RevokingDBWithCachingNewValue db, int count) {
     if (Snapshot.isRoot(db.getHead())) {
       return;
     }
@@ -252,53 +314,131 @@ public class SnapshotManager implements RevokingDatabase {
 
     SnapshotRoot root = (SnapshotRoot) db.getHead().getRoot();
     Snapshot next = root;
-    for (int i = 0; i < flushCount; ++i) {
+    for (int i = 0; i < count; ++i) {
       next = next.getNext();
       snapshots.add(next);
     }
 
+    if (root.getCount() >= 0) {
+      // take the count deltas against the root before it holds the layers, relink adds them
+      snapshots.forEach(snapshot -> ((SnapshotImpl) snapshot).getCountDelta());
+    }
     root.merge(snapshots);
+  }
 
-    root.resetSolidity();
-    if (db.getHead() == next) {
-      db.setHead(root);
-    } else {
-      next.getNext().setPrevious(root);
-      root.setNext(next.getNext());
+  private void relink(RevokingDBWithCachingNewValue db, int count) {
+    synchronized (db) {
+      if (Snapshot.isRoot(db.getHead())) {
+        return;
+      }
+
+      SnapshotRoot root = (SnapshotRoot) db.getHead().getRoot();
+      Snapshot next = root;
+      long delta = 0;
+      boolean counted = root.getCount() >= 0;
+      for (int i = 0; i < count; ++i) {
+        next = next.getNext();
+        if (counted) {
+          delta += ((SnapshotImpl) next).getCountDelta();
+        }
+      }
+
+      root.addCount(delta);
+      root.resetSolidity(next);
+      if (db.getHead() == next) {
+        db.setHead(root);
+      } else {
+        next.getNext().setPrevious(root);
+        root.setNext(next.getNext());
+      }
     }
   }
 
+  /**
+   * Hand the oldest {@code flushCount} layers to the flush thread. They are frozen: head is at
+   * least one layer above them and a retreat onto them waits for the flush to finish first.
+   */
   public void flush() {
     if (unChecked) {
       return;
     }
 
     if (shouldBeRefreshed()) {
-      long start = System.currentTimeMillis();
-      deleteCheckPoint();
-      createCheckPoint();
-      long checkPointEnd = System.currentTimeMillis();
-      refresh();
+      long stall = waitFlushDone();
+      int count = flushCount;
       flushCount = 0;
-      logger.info("flush cost:{}, create checkpoint cost:{}, refresh cost:{}",
-          System.currentTimeMillis() - start,
-          checkPointEnd - start,
-          System.currentTimeMillis() - checkPointEnd
-      );
+      pendingFlush = flushExecutor.submit(() -> flush(count, stall));
+    }
+  }
+
+  private void flush(int count, long stall) {
+    long start = System.currentTimeMillis();
+    Map<WrappedByteArray, WrappedByteArray> batch = createCheckPoint(count);
+    long offset = writeCheckPoint(batch);
+    if (unflushedOffset < 0) {
+      unflushedOffset = offset;
+    }
+    long checkPointEnd = System.currentTimeMillis();
+    if (refresh(count)) {
+      saveCounts();
+      truncateCheckPoint(unflushedOffset);
+      unflushedOffset = -1;
+    }
+    long cost = System.currentTimeMillis() - start;
+    flushes.increment();
+    flushMillis.add(cost);
+    stallMillis.add(stall);
+    logger.info("flush cost:{}, create checkpoint cost:{}, checkpoint keys:{}, refresh cost:{}, stall cost:{}, layers probed per get:{}",
+        cost,
+        checkPointEnd - start,
+        batch.size(),
+        System.currentTimeMillis() - checkPointEnd,
+        stall,
+        String.format("%.2f", SnapshotImpl.getAndResetLayersProbedPerGet())
+    );
+  }
+
+  /**
+   * @return milliseconds spent waiting for the previous flush
+   */
+  public long waitFlushDone() {
+    long start = System.currentTimeMillis();
+    try {
+      pendingFlush.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      logger.error("Snapshot manager error: {} --> ", e.getMessage(), e);
     }
+    return System.currentTimeMillis() - start;
+  }
+
+  public long getFlushes() {
+    return flushes.sum();
+  }
+
+  public long getFlushMillis() {
+    return flushMillis.sum();
   }
 
-  private void createCheckPoint() {
+  /**
+   * @return milliseconds block processing waited for a flush to finish
+   */
+  public long getStallMillis() {
+    return stallMillis.sum();
+  }
+
+  private Map<WrappedByteArray, WrappedByteArray> createCheckPoint(int count) {
     Map<WrappedByteArray, WrappedByteArray> batch = new HashMap<>();
     for (RevokingDBWithCachingNewValue db : dbs) {
       Snapshot head = db.getHead();
       if (Snapshot.isRoot(head)) {
-        return;
+        continue;
       }
 
       String dbName = db.getDbName();
       Snapshot next = head.getRoot();
-      for (int i = 0; i < flushCount; ++i) {
+      for (int i = 0; i < count; ++i) {
         next = next.getNext();
         SnapshotImpl snapshot = (SnapshotImpl) next;
         DB<Key, Value> keyValueDB = snapshot.getDb();
@@ -311,12 +451,27 @@ public class SnapshotManager implements RevokingDatabase {
       }
     }
 
-    checkTmpStore.getDbSource().updateByBatch(batch.entrySet().stream()
-            .map(e -> Maps.immutableEntry(e.getKey().getBytes(), e.getValue().getBytes()))
-            .collect(HashMap::new, (m, k) -> m.put(k.getKey(), k.getValue()), HashMap::putAll),
-        WriteOptionsWrapper.getInstance().sync(Args.getInstance().getStorage().isDbSync()));
+    return batch;
+  }
+
+  private long writeCheckPoint(Map<WrappedByteArray, WrappedByteArray> batch) {
+    try {
+      return checkpointLog.append(batch, Args.getInstance().getStorage().isDbSync());
+    } catch (IOException e) {
+      throw new IllegalStateException("write checkpoint log error.", e);
+    }
+  }
+
+  private void truncateCheckPoint(long offset) {
+    try {
+      checkpointLog.truncate(offset);
+    } catch (IOException e) {
+      throw new IllegalStateException("truncate checkpoint log error.", e);
+    }
   }
 
+  // the checkpoint was kept in the tmp db before the log, only read on the first start after
+  // an upgrade
   private void deleteCheckPoint() {
     Map<byte[], byte[]> hmap = new HashMap<byte[], byte[]>();
     if (!checkTmpStore.getDbSource().allKeys().isEmpty()) {
@@ -338,34 +493,105 @@ public class SnapshotManager implements RevokingDatabase {
       }
     }
 
-    if (!checkTmpStore.getDbSource().allKeys().isEmpty()) {
-      Map<String, RevokingDBWithCachingNewValue> dbMap = dbs.stream()
-          .map(db -> Maps.immutableEntry(db.getDbName(), db))
-          .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
-      advance();
-      for (Map.Entry<byte[], byte[]> e : checkTmpStore.getDbSource()) {
-        byte[] key = e.getKey();
-        byte[] value = e.getValue();
-        String db = simpleDecode(key);
-        if (dbMap.get(db) == null) {
-          continue;
+    checkpointDir = Paths.get(
+        Args.getInstance().getOutputDirectoryByDbName(checkTmpStore.getDbName()),
+        Args.getInstance().getStorage().getDbDirectory(), "checkpoint");
+    checkpointLog = new CheckpointLog(checkpointDir);
+    try {
+      checkpointLog.open();
+      boolean legacy = !checkTmpStore.getDbSource().allKeys().isEmpty();
+      if (!legacy && checkpointLog.isEmpty()) {
+        loadCounts();
+      } else {
+        Map<String, RevokingDBWithCachingNewValue> dbMap = dbs.stream()
+            .map(db -> Maps.immutableEntry(db.getDbName(), db))
+            .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        advance();
+        if (legacy) {
+          for (Map.Entry<byte[], byte[]> e : checkTmpStore.getDbSource()) {
+            replayCheckPoint(dbMap, e.getKey(), e.getValue());
+          }
         }
-        byte[] realKey = Arrays.copyOfRange(key, db.getBytes().length + 4, key.length);
+        int batches = checkpointLog.replay((k, v) -> replayCheckPoint(dbMap, k, v));
+        logger.info("replay checkpoint, legacy:{}, batches:{}", legacy, batches);
 
-        byte[] realValue = value.length == 1 ? null : Arrays.copyOfRange(value, 1, value.length);
-        if (realValue != null) {
-          dbMap.get(db).getHead().put(realKey, realValue);
-        } else {
-          dbMap.get(db).getHead().remove(realKey);
+        dbs.forEach(db -> db.getHead().getRoot().merge(db.getHead()));
+        retreat();
+
+        if (legacy) {
+          deleteCheckPoint();
         }
+        checkpointLog.truncate(0);
+        // the replayed batches are not in the saved counts, they are rebuilt when asked for
+        Files.deleteIfExists(checkpointDir.resolve(COUNTS_NAME));
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("replay checkpoint log error.", e);
+    }
 
+    unChecked = false;
+  }
+
+  /**
+   * Persist the key count of every root whose count is known. Called once the roots hold every
+   * flushed layer, so the counts match what is on disk.
+   */
+  private void saveCounts() {
+    Properties counts = new Properties();
+    for (RevokingDBWithCachingNewValue db : dbs) {
+      long count = ((SnapshotRoot) db.getHead().getRoot()).getCount();
+      if (count >= 0) {
+        counts.setProperty(db.getDbName(), Long.toString(count));
       }
+    }
 
-      dbs.forEach(db -> db.getHead().getRoot().merge(db.getHead()));
-      retreat();
+    Path tmp = checkpointDir.resolve(COUNTS_NAME + ".tmp");
+    try {
+      try (OutputStream out = Files.newOutputStream(tmp)) {
+        counts.store(out, null);
+      }
+      Files.move(tmp, checkpointDir.resolve(COUNTS_NAME), StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      logger.warn("save key counts error.", e);
+    }
+  }
+
+  // the file is removed once read, counts left by a crash after it was written are not trusted
+  private void loadCounts() throws IOException {
+    Path file = checkpointDir.resolve(COUNTS_NAME);
+    if (!Files.exists(file)) {
+      return;
     }
 
-    unChecked = false;
+    Properties counts = new Properties();
+    try (InputStream in = Files.newInputStream(file)) {
+      counts.load(in);
+    }
+    Files.delete(file);
+    for (RevokingDBWithCachingNewValue db : dbs) {
+      String count = counts.getProperty(db.getDbName());
+      if (count != null) {
+        ((SnapshotRoot) db.getHead().getRoot()).setCount(Long.parseLong(count));
+      }
+    }
+    logger.info("load key counts of {} dbs", counts.size());
+  }
+
+  private void replayCheckPoint(Map<String, RevokingDBWithCachingNewValue> dbMap, byte[] key,
+      byte[] value) {
+    String db = simpleDecode(key);
+    if (dbMap.get(db) == null) {
+      return;
+    }
+    byte[] realKey = Arrays.copyOfRange(key, db.getBytes().length + 4, key.length);
+
+    byte[] realValue = value.length == 1 ? null : Arrays.copyOfRange(value, 1, value.length);
+    if (realValue != null) {
+      dbMap.get(db).getHead().put(realKey, realValue);
+    } else {
+      dbMap.get(db).getHead().remove(realKey);
+    }
   }
 
   private byte[] simpleEncode(String s) {
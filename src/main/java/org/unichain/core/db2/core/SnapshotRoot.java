@@ -4,6 +4,7 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Streams;
 import lombok.Getter;
 import org.unichain.core.db.common.WrappedByteArray;
+import org.unichain.core.db.common.iterator.DBIterator;
 import org.unichain.core.db2.common.*;
 
 import java.lang.reflect.Constructor;
@@ -17,20 +18,19 @@ import java.util.stream.Collectors;
 public class SnapshotRoot extends AbstractSnapshot<byte[], byte[]> {
 
   @Getter
-  private Snapshot solidity;
+  private volatile Snapshot solidity;
+
+  // keys in the db, -1 until loaded from the last flush or rebuilt by a scan
+  private volatile long count = -1;
 
   public SnapshotRoot(String parentName, String name, Class<? extends DB> clz) {
     try {
-      if (clz == LevelDB.class || clz == RocksDB.class) {
+      if (clz == LevelDB.class || clz == RocksDB.class || clz == TxCacheDB.class) {
         Constructor constructor = clz.getConstructor(String.class, String.class);
         @SuppressWarnings("unchecked")
         DB<byte[], byte[]> db = (DB<byte[], byte[]>) constructor
             .newInstance((Object) parentName, (Object) name);
         this.db = db;
-      } else if (clz == TxCacheDB.class) {
-        @SuppressWarnings("unchecked")
-        DB<byte[], byte[]> db = (DB<byte[], byte[]>) clz.newInstance();
-        this.db = db;
       } else {
         throw new IllegalArgumentException();
       }
@@ -46,16 +46,44 @@ public class SnapshotRoot extends AbstractSnapshot<byte[], byte[]> {
     return db.get(key);
   }
 
+  // direct writes only happen with no layer above, they make the count unknown rather than
+  // paying a read per write to keep it
   @Override
   public void put(byte[] key, byte[] value) {
+    if (count >= 0) {
+      setCount(-1);
+    }
     db.put(key, value);
   }
 
   @Override
   public void remove(byte[] key) {
+    if (count >= 0) {
+      setCount(-1);
+    }
     db.remove(key);
   }
 
+  /**
+   * The tx cache evicts on its own, its count comes from the cache itself.
+   */
+  public synchronized long getCount() {
+    return db instanceof TxCacheDB ? db.size() : count;
+  }
+
+  public synchronized void setCount(long count) {
+    this.count = count;
+  }
+
+  /**
+   * Account for layers merged into the db, a no-op while the count is unknown.
+   */
+  public synchronized void addCount(long delta) {
+    if (count >= 0) {
+      count += delta;
+    }
+  }
+
   @Override
   public void merge(Snapshot from) {
     SnapshotImpl snapshot = (SnapshotImpl) from;
@@ -94,6 +122,18 @@ public class SnapshotRoot extends AbstractSnapshot<byte[], byte[]> {
     return db.iterator();
   }
 
+  /**
+   * Iterate the db in key order starting at the first key >= from.
+   */
+  public DBIterator iterator(byte[] from) {
+    if (db.getClass() == LevelDB.class) {
+      return ((LevelDB) db).getDb().iterator(from);
+    } else if (db.getClass() == RocksDB.class) {
+      return ((RocksDB) db).getDb().iterator(from);
+    }
+    throw new UnsupportedOperationException("range scan on " + db.getClass().getSimpleName());
+  }
+
   @Override
   public void close() {
     ((Flusher) db).close();
@@ -102,6 +142,7 @@ public class SnapshotRoot extends AbstractSnapshot<byte[], byte[]> {
   @Override
   public void reset() {
     ((Flusher) db).reset();
+    setCount(-1);
   }
 
   @Override
@@ -109,6 +150,16 @@ public class SnapshotRoot extends AbstractSnapshot<byte[], byte[]> {
     solidity = this;
   }
 
+  /**
+   * Called once the layers up to {@code flushed} were merged into this root. Solidity may have
+   * moved past them while they were being written, in that case it stays where it is.
+   */
+  public void resetSolidity(Snapshot flushed) {
+    if (solidity == flushed) {
+      solidity = this;
+    }
+  }
+
   @Override
   public void updateSolidity() {
     solidity = solidity.getNext();
@@ -0,0 +1,12 @@
+package org.unichain.core.exception;
+
+public class TooManyPendingException extends UnichainException {
+
+  public TooManyPendingException() {
+    super();
+  }
+
+  public TooManyPendingException(String message) {
+    super(message);
+  }
+}
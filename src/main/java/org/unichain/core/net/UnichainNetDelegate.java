@@ -155,6 +155,10 @@ public class UnichainNetDelegate {
     }
   }
 
+  public void prefetchBlock(BlockCapsule block) {
+    dbManager.prefetchBlock(block);
+  }
+
   public void processBlock(BlockCapsule block) throws P2pException {
     synchronized (blockLock) {
       try {
@@ -205,6 +209,7 @@ public class UnichainNetDelegate {
         | TransactionExpirationException
         | ReceiptCheckErrException
         | TooBigTransactionResultException
+        | TooManyPendingException
         | AccountResourceInsufficientException e) {
       throw new P2pException(TypeEnum.UNW_EXE_FAILED, e);
     }
@@ -2,6 +2,7 @@ package org.unichain.core.net.service;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import javafx.util.Pair;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
@@ -22,10 +23,7 @@ import org.unichain.protos.Protocol.Inventory.InventoryType;
 import org.unichain.protos.Protocol.ReasonCode;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
 
 import static org.unichain.core.config.Parameter.NetConstants.MAX_BLOCK_FETCH_PER_PEER;
 
@@ -47,6 +45,22 @@ public class SyncService {
 
   private ScheduledExecutorService blockHandleExecutor = Executors.newSingleThreadScheduledExecutor();
 
+  /*
+   * Checks of received blocks that need no state run here while earlier blocks are applied. The
+   * queue bounds the lookahead, a block that finds it full is checked inline when it is applied.
+   */
+  private int prefetchThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+  private ExecutorService prefetchExecutor = new ThreadPoolExecutor(prefetchThreads,
+      prefetchThreads, 0L, TimeUnit.MILLISECONDS,
+      new ArrayBlockingQueue<>(NodeConstant.MAX_BLOCKS_PREFETCH),
+      new ThreadFactoryBuilder().setNameFormat("sync-prefetch-%d").build(),
+      new ThreadPoolExecutor.DiscardPolicy());
+
+  private static final long THROUGHPUT_REPORT_INTERVAL_MS = 10_000L;
+  private long reportStart = System.currentTimeMillis();
+  private long syncedBlocks = 0;
+  private long syncedTxs = 0;
+
   private volatile boolean handleFlag = false;
 
   @Setter
@@ -79,6 +93,7 @@ public class SyncService {
   public void close() {
     fetchExecutor.shutdown();
     blockHandleExecutor.shutdown();
+    prefetchExecutor.shutdownNow();
   }
 
   public void startSync(PeerConnection peer) {
@@ -109,6 +124,13 @@ public class SyncService {
   }
 
   public void processBlock(PeerConnection peer, BlockMessage blockMessage) {
+    prefetchExecutor.execute(() -> {
+      try {
+        unichainNetDelegate.prefetchBlock(blockMessage.getBlockCapsule());
+      } catch (Exception e) {
+        logger.warn("Prefetch sync block {} failed.", blockMessage.getBlockId().getString(), e);
+      }
+    });
     synchronized (blockJustReceived) {
       blockJustReceived.put(blockMessage, peer);
     }
@@ -246,6 +268,24 @@ public class SyncService {
         });
       }
     }
+    reportThroughput();
+  }
+
+  private void reportThroughput() {
+    long now = System.currentTimeMillis();
+    long elapsed = now - reportStart;
+    if (elapsed < THROUGHPUT_REPORT_INTERVAL_MS) {
+      return;
+    }
+    if (syncedBlocks > 0) {
+      logger.info("Sync throughput: {} blocks/s, {} tx/s, blocks waiting: {}",
+          String.format("%.1f", syncedBlocks * 1000.0 / elapsed),
+          String.format("%.1f", syncedTxs * 1000.0 / elapsed),
+          blockWaitToProcess.size());
+    }
+    reportStart = now;
+    syncedBlocks = 0;
+    syncedTxs = 0;
   }
 
   private void processSyncBlock(BlockCapsule block) {
@@ -253,6 +293,8 @@ public class SyncService {
     BlockId blockId = block.getBlockId();
     try {
       unichainNetDelegate.processBlock(block);
+      ++syncedBlocks;
+      syncedTxs += block.getTransactions().size();
     } catch (Exception e) {
       logger.error("Process sync block {} failed.", blockId.getString(), e);
       flag = false;
@@ -15,6 +15,8 @@ import org.unichain.common.overlay.discover.node.NodeManager;
 import org.unichain.common.overlay.server.SyncPool;
 import org.unichain.core.config.args.Args;
 import org.unichain.core.db.Manager;
+import org.unichain.core.db2.core.RevokingDBWithCachingNewValue;
+import org.unichain.core.db2.core.SnapshotManager;
 import org.unichain.core.net.peer.PeerConnection;
 import org.unichain.core.services.WitnessProductBlockService.CheatWitnessInfo;
 import org.unichain.program.Version;
@@ -55,6 +57,7 @@ public class NodeInfoService {
     setConfigNodeInfo(nodeInfo);
     setBlockInfo(nodeInfo);
     setCheatWitnessInfo(nodeInfo);
+    setStoreKeyCount(nodeInfo);
     return nodeInfo;
   }
 
@@ -188,6 +191,20 @@ public class NodeInfoService {
     nodeInfo.setSolidityBlock(dbManager.getSolidBlockId().getString());
   }
 
+  // only counts that are already known, a node info request never triggers a store scan
+  private void setStoreKeyCount(NodeInfo nodeInfo) {
+    if (!(dbManager.getRevokingStore() instanceof SnapshotManager)) {
+      return;
+    }
+    for (RevokingDBWithCachingNewValue db : ((SnapshotManager) dbManager.getRevokingStore())
+        .getDbs()) {
+      long count = db.getKnownSize();
+      if (count >= 0) {
+        nodeInfo.getStoreKeyCountMap().put(db.getDbName(), count);
+      }
+    }
+  }
+
   protected void setCheatWitnessInfo(NodeInfo nodeInfo) {
     for (Entry<String, CheatWitnessInfo> entry : witnessProductBlockService.queryCheatWitnessInfo()
         .entrySet()) {
@@ -377,6 +377,7 @@ public class WitnessService implements Service {
     }
 
     this.privateKeyMap.put(witnessCapsule.getAddress(), privateKey);
+    this.manager.setLocalWitness(witnessCapsule.getAddress());
     this.localWitnessStateMap.put(witnessCapsule.getAddress(), witnessCapsule);
     this.privateKeyToAddressMap.put(privateKey, privateKeyAccountAddress);
   }
@@ -0,0 +1,353 @@
+package org.unichain.program;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.BooleanUtils;
+import org.iq80.leveldb.DB;
+import org.rocksdb.Options;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.springframework.context.ApplicationContext;
+import org.unichain.common.application.Application;
+import org.unichain.common.application.ApplicationFactory;
+import org.unichain.common.application.UnichainApplicationContext;
+import org.unichain.common.overlay.discover.DiscoverServer;
+import org.unichain.common.overlay.discover.node.NodeManager;
+import org.unichain.common.overlay.server.ChannelManager;
+import org.unichain.common.utils.ByteArray;
+import org.unichain.common.utils.LatencyHistogram;
+import org.unichain.common.utils.PropUtil;
+import org.unichain.core.Constant;
+import org.unichain.core.capsule.BlockCapsule;
+import org.unichain.core.capsule.TransactionRetCapsule;
+import org.unichain.core.config.DefaultConfig;
+import org.unichain.core.config.args.Args;
+import org.unichain.core.db.Manager;
+import org.unichain.core.db2.core.SnapshotManager;
+import org.unichain.protos.Protocol.Transaction.Contract.ContractType;
+import org.unichain.protos.Protocol.TransactionInfo;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.fusesource.leveldbjni.JniDBFactory.factory;
+
+/**
+ * Replays a block range of an existing database into a scratch one and reports the throughput.
+ *
+ * usage: BlockReplay --source <output directory of a node> --to <num> [--from <num>] [--compare]
+ * [--verify] -d <scratch output directory> [other node options]
+ *
+ * State can't be rewound, so blocks are applied from the scratch head, genesis on an empty
+ * directory, and only the blocks from {@code --from} on are measured. The scratch directory is
+ * kept, a later run continues from where it stopped. Blocks go through
+ * {@link Manager#pushVerifiedBlock}, skipping the signatures unless {@code --verify} is set.
+ * {@code --compare} checks the transaction results against the source, which needs
+ * storage.transHistory.switch on for both.
+ *
+ * The throughput counts only the time spent in the push calls, reading the source and comparing
+ * are reported apart.
+ */
+@Slf4j(topic = "app")
+public class BlockReplay {
+
+  private static final long PROGRESS_INTERVAL_MS = 10_000L;
+  private static final int MAX_LOGGED_MISMATCHES = 10;
+
+  static {
+    RocksDB.loadLibrary();
+  }
+
+  private interface SourceDb extends Closeable {
+
+    byte[] get(byte[] key) throws IOException;
+  }
+
+  private final Manager dbManager;
+  private final SourceDb blockIndex;
+  private final SourceDb blocks;
+  private final SourceDb transactionRets;
+  private final boolean verify;
+  private final SnapshotManager snapshots;
+
+  private final Map<ContractType, LatencyHistogram> contracts = new EnumMap<>(ContractType.class);
+  private volatile boolean measuring = false;
+  private long blockCount = 0;
+  private long txCount = 0;
+  private long mismatches = 0;
+
+  private BlockReplay(Manager dbManager, String source, boolean verify, boolean compare)
+      throws IOException {
+    this.dbManager = dbManager;
+    this.verify = verify;
+    this.snapshots = dbManager.getRevokingStore() instanceof SnapshotManager
+        ? (SnapshotManager) dbManager.getRevokingStore() : null;
+    String dir = Paths.get(source, Args.getInstance().getStorage().getDbDirectory()).toString();
+    this.blockIndex = open(dir, "block-index");
+    this.blocks = open(dir, "block");
+    this.transactionRets = compare ? open(dir, "transactionRetStore") : null;
+    dbManager.setTransactionObserver((tx, nanos) -> {
+      if (measuring) {
+        contracts.computeIfAbsent(tx.getInstance().getRawData().getContract(0).getType(),
+            k -> new LatencyHistogram()).record(nanos);
+      }
+    });
+  }
+
+  private static SourceDb open(String dir, String name) throws IOException {
+    File path = Paths.get(dir, name).toFile();
+    if (!path.isDirectory()) {
+      throw new IOException(path + " not exists.");
+    }
+
+    String engine = PropUtil.readProperty(path + File.separator + "engine.properties", "ENGINE");
+    if ("ROCKSDB".equals(engine)) {
+      try (Options options = new Options()) {
+        RocksDB db = RocksDB.openReadOnly(options, path.toString());
+        return new SourceDb() {
+          @Override
+          public byte[] get(byte[] key) throws IOException {
+            try {
+              return db.get(key);
+            } catch (RocksDBException e) {
+              throw new IOException(e);
+            }
+          }
+
+          @Override
+          public void close() {
+            db.close();
+          }
+        };
+      } catch (RocksDBException e) {
+        throw new IOException(e);
+      }
+    }
+
+    org.iq80.leveldb.Options options = new org.iq80.leveldb.Options();
+    options.createIfMissing(false);
+    DB db = factory.open(path, options);
+    return new SourceDb() {
+      @Override
+      public byte[] get(byte[] key) {
+        return db.get(key);
+      }
+
+      @Override
+      public void close() throws IOException {
+        db.close();
+      }
+    };
+  }
+
+  private void replay(long from, long to) throws Exception {
+    long head = dbManager.getHeadBlockNum();
+    if (head >= from) {
+      logger.warn("scratch head {} is past the start block {}, measuring from {}", head, from,
+          head + 1);
+    }
+
+    long start = 0;
+    long pushNanos = 0;
+    long compareNanos = 0;
+    long flushes = 0;
+    long flushMillis = 0;
+    long stallMillis = 0;
+    long[] gc = new long[2];
+    long lastProgress = System.currentTimeMillis();
+    for (long num = head + 1; num <= to; num++) {
+      byte[] id = blockIndex.get(ByteArray.fromLong(num));
+      byte[] data = id == null ? null : blocks.get(id);
+      if (data == null) {
+        logger.warn("block {} not found in the source, stop", num);
+        break;
+      }
+
+      if (!measuring && num >= from) {
+        measuring = true;
+        if (snapshots != null) {
+          // the flush of the warm up blocks is neither counted nor timed
+          snapshots.waitFlushDone();
+          flushes = snapshots.getFlushes();
+          flushMillis = snapshots.getFlushMillis();
+          stallMillis = snapshots.getStallMillis();
+        }
+        gc = gcTotals();
+        start = System.nanoTime();
+      }
+
+      BlockCapsule block = new BlockCapsule(data);
+      long pushStart = System.nanoTime();
+      if (verify) {
+        dbManager.pushBlock(block);
+      } else {
+        dbManager.pushVerifiedBlock(block);
+      }
+      long pushEnd = System.nanoTime();
+      if (transactionRets != null) {
+        compare(num);
+      }
+      if (measuring) {
+        ++blockCount;
+        txCount += block.getTransactions().size();
+        pushNanos += pushEnd - pushStart;
+        compareNanos += System.nanoTime() - pushEnd;
+      }
+
+      long now = System.currentTimeMillis();
+      if (now - lastProgress >= PROGRESS_INTERVAL_MS) {
+        lastProgress = now;
+        logger.info("replayed up to block {}, measured blocks:{}, txs:{}", num, blockCount, txCount);
+      }
+    }
+
+    if (!measuring) {
+      logger.info("no block measured");
+      return;
+    }
+    long elapsed = System.nanoTime() - start;
+    // the last flush handed over still runs, its cost belongs to the measured blocks
+    long drainMillis = snapshots == null ? 0 : snapshots.waitFlushDone();
+    double seconds = Math.max(pushNanos, 1) / 1e9;
+    long[] gcEnd = gcTotals();
+    logger.info("replayed blocks:{}, txs:{} in {}s of push, {} blocks/s, {} tx/s",
+        blockCount, txCount, String.format("%.1f", seconds),
+        String.format("%.1f", blockCount / seconds), String.format("%.1f", txCount / seconds));
+    logger.info("elapsed:{}ms, push:{}ms, compare:{}ms, source read and other:{}ms",
+        elapsed / 1_000_000, pushNanos / 1_000_000, compareNanos / 1_000_000,
+        (elapsed - pushNanos - compareNanos) / 1_000_000);
+    contracts.forEach((type, histogram) -> logger.info("contract {} {}", type, histogram));
+    if (snapshots != null) {
+      logger.info("snapshot flushes:{}, flush cost:{}ms, stall cost:{}ms, final flush wait:{}ms",
+          snapshots.getFlushes() - flushes, snapshots.getFlushMillis() - flushMillis,
+          snapshots.getStallMillis() - stallMillis, drainMillis);
+    }
+    logger.info("gc collections:{}, gc pause:{}ms", gcEnd[0] - gc[0], gcEnd[1] - gc[1]);
+    if (transactionRets != null) {
+      logger.info("transaction result mismatches:{}", mismatches);
+    }
+  }
+
+  private void compare(long num) throws Exception {
+    byte[] key = ByteArray.fromLong(num);
+    byte[] expected = transactionRets.get(key);
+    TransactionRetCapsule actual = dbManager.getTransactionRetStore().getUnchecked(key);
+    List<TransactionInfo> want = expected == null ? new ArrayList<>()
+        : new TransactionRetCapsule(expected).getInstance().getTransactioninfoList();
+    List<TransactionInfo> got = actual == null ? new ArrayList<>()
+        : actual.getInstance().getTransactioninfoList();
+
+    for (int i = 0; i < Math.max(want.size(), got.size()); i++) {
+      TransactionInfo w = i < want.size() ? want.get(i) : null;
+      TransactionInfo g = i < got.size() ? got.get(i) : null;
+      if (w != null && w.equals(g)) {
+        continue;
+      }
+      if (++mismatches <= MAX_LOGGED_MISMATCHES) {
+        logger.warn("block {} transaction {} result mismatch, source:{}, replay:{}", num,
+            ByteArray.toHexString((w != null ? w : g).getId().toByteArray()), w, g);
+      }
+    }
+  }
+
+  private static long[] gcTotals() {
+    long[] totals = new long[2];
+    for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+      totals[0] += Math.max(bean.getCollectionCount(), 0);
+      totals[1] += Math.max(bean.getCollectionTime(), 0);
+    }
+    return totals;
+  }
+
+  private void close() {
+    if (snapshots != null) {
+      // System.exit runs the shutdown hook, wait here so no flush is cut short
+      snapshots.waitFlushDone();
+    }
+    dbManager.setTransactionObserver(null);
+    for (SourceDb db : new SourceDb[]{blockIndex, blocks, transactionRets}) {
+      if (db == null) {
+        continue;
+      }
+      try {
+        db.close();
+      } catch (IOException e) {
+        logger.warn("close source db failed: {}", e.getMessage());
+      }
+    }
+  }
+
+  public static void main(String[] args) {
+    String source = null;
+    long from = 1;
+    long to = -1;
+    boolean compare = false;
+    boolean verify = false;
+    List<String> nodeArgs = new ArrayList<>();
+    for (int i = 0; i < args.length; i++) {
+      switch (args[i]) {
+        case "--source":
+          source = args[++i];
+          break;
+        case "--from":
+          from = Long.parseLong(args[++i]);
+          break;
+        case "--to":
+          to = Long.parseLong(args[++i]);
+          break;
+        case "--compare":
+          compare = true;
+          break;
+        case "--verify":
+          verify = true;
+          break;
+        default:
+          nodeArgs.add(args[i]);
+      }
+    }
+
+    Args.setParam(nodeArgs.toArray(new String[0]), Constant.TESTNET_CONF);
+    Args cfgArgs = Args.getInstance();
+    if (source == null || to < from) {
+      logger.error("usage: BlockReplay --source <dir> --to <num> [--from <num>] [--compare] "
+          + "[--verify] -d <scratch dir>");
+      return;
+    }
+    if (new File(source).getAbsoluteFile().toPath().normalize().equals(
+        new File(cfgArgs.getOutputDirectory()).getAbsoluteFile().toPath().normalize())) {
+      logger.error("source and scratch directory must differ");
+      return;
+    }
+    if (compare && !BooleanUtils.toBoolean(cfgArgs.getStorage().getTransactionHistoreSwitch())) {
+      logger.error("--compare needs storage.transHistory.switch on");
+      return;
+    }
+
+    ApplicationContext context = new UnichainApplicationContext(DefaultConfig.class);
+    Application appT = ApplicationFactory.create(context);
+    FullNode.shutdown(appT);
+    context.getBean(DiscoverServer.class).close();
+    context.getBean(ChannelManager.class).close();
+    context.getBean(NodeManager.class).close();
+
+    BlockReplay replay = null;
+    try {
+      replay = new BlockReplay(appT.getDbManager(), source, verify, compare);
+      replay.replay(from, to);
+    } catch (Exception e) {
+      logger.error("replay failed", e);
+    } finally {
+      if (replay != null) {
+        replay.close();
+      }
+    }
+    System.exit(0);
+  }
+}
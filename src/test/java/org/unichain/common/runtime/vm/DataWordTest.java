@@ -0,0 +1,233 @@
+package org.unichain.common.runtime.vm;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.unichain.common.runtime.vm.DataWord.MAX_VALUE;
+
+/**
+ * Compares the limb arithmetic of DataWord with the BigInteger expressions it replaced.
+ */
+public class DataWordTest {
+
+  private static final int RANDOM_PAIRS = 200_000;
+  private static final BigInteger MIN_SIGNED = BigInteger.ONE.shiftLeft(255);
+
+  private final Random random = new Random(20190717L);
+
+  @Test
+  public void randomOperands() {
+    for (int i = 0; i < RANDOM_PAIRS; i++) {
+      checkAll(randomWord(), randomWord());
+    }
+  }
+
+  @Test
+  public void edgeOperands() {
+    List<byte[]> words = new ArrayList<>();
+    for (BigInteger value : new BigInteger[]{
+        BigInteger.ZERO, BigInteger.ONE, BigInteger.valueOf(2), BigInteger.valueOf(7),
+        BigInteger.valueOf(0xffffffffL), BigInteger.ONE.shiftLeft(32), BigInteger.ONE.shiftLeft(64),
+        MIN_SIGNED, MIN_SIGNED.subtract(BigInteger.ONE), MIN_SIGNED.add(BigInteger.ONE),
+        MAX_VALUE, MAX_VALUE.subtract(BigInteger.ONE)}) {
+      words.add(toWord(value));
+    }
+    for (byte[] a : words) {
+      for (byte[] b : words) {
+        checkAll(a, b);
+      }
+    }
+  }
+
+  @Test
+  public void signedDivisionOfMinimum() {
+    byte[] min = toWord(MIN_SIGNED);
+    byte[] minusOne = toWord(MAX_VALUE);
+
+    DataWord quotient = new DataWord(min.clone());
+    quotient.sDiv(new DataWord(minusOne.clone()));
+    Assert.assertArrayEquals(min, quotient.getData());
+
+    DataWord remainder = new DataWord(min.clone());
+    remainder.sMod(new DataWord(minusOne.clone()));
+    Assert.assertTrue(remainder.isZero());
+    checkAll(min, minusOne);
+  }
+
+  @Test
+  public void divisionAddBack() {
+    // operands for which the estimated quotient digit of algorithm D is one too large
+    String[][] cases = {
+        {"7fffffff800000000000000000000000", "800000000000000000000001"},
+        {"800000000000000000000003", "200000000000000000000001"},
+        {"8000000000000000000000000000000000000003", "2000000000000000000000000000000000000001"}};
+    for (String[] c : cases) {
+      for (int shift : new int[]{0, 64, 128}) {
+        BigInteger u = new BigInteger(c[0], 16).shiftLeft(shift);
+        BigInteger v = new BigInteger(c[1], 16).shiftLeft(shift);
+        checkAll(toWord(u), toWord(v));
+        checkAll(toWord(u), toWord(new BigInteger(c[1], 16)));
+      }
+    }
+  }
+
+  @Test
+  public void singleLimbDivisors() {
+    long[] divisors = {1, 2, 3, 10, 0x7fffffffL, 0x80000000L, 0xfffffffbL, 0xffffffffL};
+    for (long d : divisors) {
+      byte[] divisor = toWord(BigInteger.valueOf(d));
+      for (int i = 0; i < 1000; i++) {
+        checkAll(randomWord(), divisor);
+      }
+      checkAll(toWord(MAX_VALUE), divisor);
+      checkAll(toWord(MIN_SIGNED), divisor);
+      checkAll(toWord(BigInteger.valueOf(d - 1)), divisor);
+    }
+  }
+
+  @Test
+  public void shiftAmounts() {
+    long[] amounts = {0, 1, 31, 32, 33, 64, 128, 254, 255, 256, 257, 0xffff, 0x10000,
+        Long.MAX_VALUE};
+    List<byte[]> shifts = new ArrayList<>();
+    for (long amount : amounts) {
+      shifts.add(toWord(BigInteger.valueOf(amount)));
+    }
+    shifts.add(toWord(MAX_VALUE));
+    // a small amount in the low bytes under a non zero high byte
+    byte[] high = new byte[DataWord.WORD_SIZE];
+    high[0] = 1;
+    high[DataWord.WORD_SIZE - 1] = 1;
+    shifts.add(high);
+
+    for (byte[] value : new byte[][]{toWord(BigInteger.ONE), toWord(MIN_SIGNED),
+        toWord(MAX_VALUE), randomWord(), randomWord()}) {
+      for (byte[] shift : shifts) {
+        checkShifts(value, shift);
+      }
+    }
+  }
+
+  private void checkAll(byte[] a, byte[] b) {
+    BigInteger ua = new BigInteger(1, a);
+    BigInteger ub = new BigInteger(1, b);
+    BigInteger sa = new BigInteger(a);
+    BigInteger sb = new BigInteger(b);
+
+    check("sub", a, b, ua.subtract(ub), (x, y) -> x.sub(y));
+    check("mul", a, b, ua.multiply(ub), (x, y) -> x.mul(y));
+    // a division by zero has always cleared the dividend in place
+    if (ub.signum() == 0) {
+      checkByZero(a, b);
+    } else {
+      check("div", a, b, ua.divide(ub), (x, y) -> x.div(y));
+      check("mod", a, b, ua.mod(ub), (x, y) -> x.mod(y));
+      check("sDiv", a, b, sa.divide(sb), (x, y) -> x.sDiv(y));
+      BigInteger sMod = sa.abs().mod(sb.abs());
+      check("sMod", a, b, sa.signum() == -1 ? sMod.negate() : sMod, (x, y) -> x.sMod(y));
+    }
+    check("bnot", a, b, MAX_VALUE.subtract(ua), (x, y) -> x.bnot());
+    checkShifts(a, b);
+  }
+
+  private void checkShifts(byte[] value, byte[] shift) {
+    BigInteger amount = new BigInteger(1, shift);
+    boolean overflow = amount.compareTo(BigInteger.valueOf(DataWord.MAX_POW)) >= 0;
+    BigInteger uv = new BigInteger(1, value);
+    BigInteger sv = new BigInteger(value);
+
+    assertWord("shiftLeft", value, shift,
+        overflow ? BigInteger.ZERO : uv.shiftLeft(amount.intValue()),
+        new DataWord(value).shiftLeft(new DataWord(shift)));
+    assertWord("shiftRight", value, shift,
+        overflow ? BigInteger.ZERO : uv.shiftRight(amount.intValue()),
+        new DataWord(value).shiftRight(new DataWord(shift)));
+    BigInteger signedOverflow = sv.signum() < 0 ? BigInteger.ONE.negate() : BigInteger.ZERO;
+    assertWord("shiftRightSigned", value, shift,
+        overflow ? signedOverflow : sv.shiftRight(amount.intValue()),
+        new DataWord(value).shiftRightSigned(new DataWord(shift)));
+  }
+
+  private void check(String op, byte[] a, byte[] b, BigInteger expected, Operation operation) {
+    byte[] left = a.clone();
+    byte[] right = b.clone();
+    DataWord word = new DataWord(left);
+    operation.apply(word, new DataWord(right));
+    assertWord(op, a, b, expected, word);
+    // words may alias memory or storage, the operands are never written
+    Assert.assertArrayEquals(op, a, left);
+    Assert.assertArrayEquals(op, b, right);
+  }
+
+  private static void checkByZero(byte[] a, byte[] b) {
+    Operation[] operations = {(x, y) -> x.div(y), (x, y) -> x.mod(y), (x, y) -> x.sDiv(y),
+        (x, y) -> x.sMod(y)};
+    for (Operation operation : operations) {
+      DataWord word = new DataWord(a.clone());
+      operation.apply(word, new DataWord(b.clone()));
+      Assert.assertTrue(word.isZero());
+    }
+  }
+
+  private static void assertWord(String op, byte[] a, byte[] b, BigInteger expected,
+      DataWord actual) {
+    byte[] want = toWord(expected);
+    if (!Arrays.equals(want, actual.getData())) {
+      Assert.fail(String.format("%s a:%s, b:%s, expected:%s, actual:%s", op,
+          new BigInteger(1, a).toString(16), new BigInteger(1, b).toString(16),
+          new BigInteger(1, want).toString(16), new BigInteger(1, actual.getData()).toString(16)));
+    }
+  }
+
+  private static byte[] toWord(BigInteger value) {
+    byte[] bytes = value.and(MAX_VALUE).toByteArray();
+    byte[] word = new byte[DataWord.WORD_SIZE];
+    int length = Math.min(bytes.length, DataWord.WORD_SIZE);
+    System.arraycopy(bytes, bytes.length - length, word, DataWord.WORD_SIZE - length, length);
+    return word;
+  }
+
+  /**
+   * Random words of every length, with sign extended, sparse and power of two shapes mixed in.
+   */
+  private byte[] randomWord() {
+    byte[] word = new byte[DataWord.WORD_SIZE];
+    int shape = random.nextInt(8);
+    int length = shape == 0 ? DataWord.WORD_SIZE : random.nextInt(DataWord.WORD_SIZE + 1);
+    for (int i = DataWord.WORD_SIZE - length; i < DataWord.WORD_SIZE; i++) {
+      word[i] = (byte) random.nextInt(256);
+    }
+    switch (shape) {
+      case 1:
+        Arrays.fill(word, 0, DataWord.WORD_SIZE - length, (byte) 0xff);
+        break;
+      case 2:
+        for (int i = 0; i < DataWord.WORD_SIZE; i++) {
+          word[i] = random.nextBoolean() ? (byte) 0xff : 0;
+        }
+        break;
+      case 3:
+        word = new byte[DataWord.WORD_SIZE];
+        word[random.nextInt(DataWord.WORD_SIZE)] = (byte) (1 << random.nextInt(8));
+        break;
+      case 4:
+        word = toWord(BigInteger.ONE.shiftLeft(random.nextInt(DataWord.MAX_POW))
+            .subtract(BigInteger.valueOf(random.nextInt(3))));
+        break;
+      default:
+        break;
+    }
+    return word;
+  }
+
+  private interface Operation {
+
+    void apply(DataWord word, DataWord arg);
+  }
+}
@@ -0,0 +1,136 @@
+package org.unichain.common.runtime.vm.program;
+
+import com.google.common.cache.CacheStats;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.unichain.common.runtime.vm.DataWord;
+import org.unichain.common.runtime.vm.OpCode;
+import org.unichain.common.runtime.vm.program.invoke.ProgramInvoke;
+
+import java.util.Random;
+
+/**
+ * The PUSH immediates pre-decoded by the code analysis must be the words Program.sweep reads
+ * from the code, with the same pc and stop state after the instruction. The analysis is found
+ * again by the code array and by the code.
+ */
+public class ProgramPrecompileTest {
+
+  private final ProgramInvoke invoke = Mockito.mock(ProgramInvoke.class);
+  private final InternalTransaction transaction = Mockito.mock(InternalTransaction.class);
+  private final Random random = new Random(20190801L);
+
+  @Test
+  public void everyPushSize() {
+    for (int n = 1; n <= 32; n++) {
+      byte[] code = new byte[n + 3];
+      random.nextBytes(code);
+      code[0] = OpCode.JUMPDEST.val();
+      code[1] = push(n);
+      checkPushes(code);
+    }
+  }
+
+  @Test
+  public void truncatedImmediates() {
+    for (int n = 1; n <= 32; n++) {
+      for (int available = 0; available < n; available++) {
+        byte[] code = new byte[2 + available];
+        random.nextBytes(code);
+        code[0] = OpCode.JUMPDEST.val();
+        code[1] = push(n);
+        checkPushes(code);
+      }
+    }
+  }
+
+  @Test
+  public void randomCode() {
+    for (int round = 0; round < 50; round++) {
+      byte[] code = new byte[1 + random.nextInt(2048)];
+      random.nextBytes(code);
+      // mostly PUSH instructions, so blocks of 64 pcs hold many of them
+      for (int i = 0; i < code.length; i += 1 + random.nextInt(4)) {
+        code[i] = push(1 + random.nextInt(32));
+      }
+      checkPushes(code);
+    }
+  }
+
+  @Test
+  public void noPushOutsideInstructions() {
+    byte[] code = new byte[]{push(2), push(1), push(1), OpCode.JUMPDEST.val(), push(1)};
+    ProgramPrecompile precompile = ProgramPrecompile.compile(code);
+    Assert.assertNotNull(precompile.getPushWord(0));
+    Assert.assertNull(precompile.getPushWord(1));
+    Assert.assertNull(precompile.getPushWord(2));
+    Assert.assertNull(precompile.getPushWord(3));
+    Assert.assertNotNull(precompile.getPushWord(4));
+    Assert.assertNull(precompile.getPushWord(-1));
+    Assert.assertNull(precompile.getPushWord(code.length));
+    Assert.assertNull(precompile.getPushWord(1 << 20));
+  }
+
+  @Test
+  public void cacheHitsAndMisses() {
+    byte[] code = new byte[24 * 1024];
+    random.nextBytes(code);
+
+    CacheStats before = ProgramPrecompile.getCacheStats();
+    ProgramPrecompile analysis = ProgramPrecompile.getOrCompile(code);
+    CacheStats delta = ProgramPrecompile.getCacheStats().minus(before);
+    Assert.assertEquals(0, delta.hitCount());
+    Assert.assertEquals(1, delta.missCount());
+
+    // the array a deposit hands out again is found without hashing the code
+    before = ProgramPrecompile.getCacheStats();
+    Assert.assertSame(analysis, ProgramPrecompile.getOrCompile(code));
+    Assert.assertEquals(0, ProgramPrecompile.getCacheStats().minus(before).requestCount());
+
+    // the same code read into another array is found by content
+    before = ProgramPrecompile.getCacheStats();
+    Assert.assertSame(analysis, ProgramPrecompile.getOrCompile(code.clone()));
+    delta = ProgramPrecompile.getCacheStats().minus(before);
+    Assert.assertEquals(1, delta.hitCount());
+    Assert.assertEquals(0, delta.missCount());
+
+    byte[] other = code.clone();
+    other[other.length - 1] ^= 1;
+    before = ProgramPrecompile.getCacheStats();
+    Assert.assertNotSame(analysis, ProgramPrecompile.getOrCompile(other));
+    delta = ProgramPrecompile.getCacheStats().minus(before);
+    Assert.assertEquals(0, delta.hitCount());
+    Assert.assertEquals(1, delta.missCount());
+  }
+
+  /**
+   * Walk the instructions of the code and compare every PUSH with a sweep of its immediate.
+   */
+  private void checkPushes(byte[] code) {
+    for (int pc = 0; pc < code.length; pc++) {
+      int n = (code[pc] & 0xff) - (OpCode.PUSH1.val() & 0xff) + 1;
+      if (n < 1 || n > 32) {
+        continue;
+      }
+      Program decoded = new Program(code, invoke, transaction);
+      decoded.setPC(pc);
+      DataWord word = decoded.pushImmediate(n);
+
+      Program swept = new Program(code, invoke, transaction);
+      swept.setPC(pc);
+      swept.step();
+      DataWord expected = new DataWord(swept.sweep(n));
+
+      String at = "PUSH" + n + " at " + pc + " of " + code.length;
+      Assert.assertArrayEquals(at, expected.getData(), word.getData());
+      Assert.assertEquals(at, swept.getPC(), decoded.getPC());
+      Assert.assertEquals(at, swept.isStopped(), decoded.isStopped());
+      pc += n;
+    }
+  }
+
+  private static byte push(int n) {
+    return (byte) (OpCode.PUSH1.val() + n - 1);
+  }
+}
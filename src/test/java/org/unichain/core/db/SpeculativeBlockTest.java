@@ -0,0 +1,162 @@
+package org.unichain.core.db;
+
+import com.google.protobuf.ByteString;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.unichain.common.application.UnichainApplicationContext;
+import org.unichain.common.crypto.ECKey;
+import org.unichain.common.utils.ByteArray;
+import org.unichain.common.utils.FileUtil;
+import org.unichain.core.Constant;
+import org.unichain.core.capsule.AccountCapsule;
+import org.unichain.core.capsule.BlockCapsule;
+import org.unichain.core.capsule.TransactionCapsule;
+import org.unichain.core.capsule.WitnessCapsule;
+import org.unichain.core.config.DefaultConfig;
+import org.unichain.core.config.Parameter.ChainConstant;
+import org.unichain.core.config.args.Args;
+import org.unichain.protos.Contract.TransferContract;
+import org.unichain.protos.Protocol.AccountType;
+import org.unichain.protos.Protocol.Transaction;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A block sealed from the speculative block must be the block generated without speculation, with
+ * the same transaction results, and the pooled transactions must not carry the speculative results.
+ */
+@Slf4j
+public class SpeculativeBlockTest {
+
+  private static final String dbPath = "output_speculative_block_test";
+  private static final int SENDERS = 4;
+
+  private static UnichainApplicationContext context;
+  private static Manager dbManager;
+  private static ECKey witnessKey;
+  private static WitnessCapsule witness;
+  private static long headTime;
+  private static List<Transaction> transactions = new ArrayList<>();
+
+  @BeforeClass
+  public static void init() throws Exception {
+    Args.setParam(new String[]{"-d", dbPath}, Constant.TESTNET_CONF);
+    context = new UnichainApplicationContext(DefaultConfig.class);
+    dbManager = context.getBean(Manager.class);
+
+    witnessKey = ECKey.fromPrivate(BigInteger.valueOf(1_000_000_007L));
+    ByteString witnessAddress = ByteString.copyFrom(witnessKey.getAddress());
+    witness = new WitnessCapsule(witnessAddress);
+    dbManager.getWitnessStore().put(witnessAddress.toByteArray(), witness);
+    dbManager.getWitnessController().setActiveWitnesses(Collections.singletonList(witnessAddress));
+    dbManager.setLocalWitness(witnessAddress);
+    dbManager.getDynamicPropertiesStore().saveNextMaintenanceTime(Long.MAX_VALUE / 2);
+
+    // the blocks are produced ahead of the clock, so the production time limit never cuts them
+    long interval = ChainConstant.BLOCK_PRODUCED_INTERVAL;
+    headTime = (System.currentTimeMillis() / interval + 600_000 / interval) * interval;
+    Args.getInstance().setSpeculativeExecution(false);
+    Assert.assertNotNull(dbManager.generateBlock(witness, headTime, witnessKey.getPrivKeyBytes(),
+        false, false));
+
+    for (int i = 0; i < SENDERS; i++) {
+      ECKey sender = ECKey.fromPrivate(BigInteger.valueOf(2_000_000_000L + i));
+      ECKey receiver = ECKey.fromPrivate(BigInteger.valueOf(3_000_000_000L + i));
+      dbManager.getAccountStore().put(sender.getAddress(), new AccountCapsule(
+          ByteString.copyFromUtf8("sender" + i), ByteString.copyFrom(sender.getAddress()),
+          AccountType.Normal, 1_000_000_000_000L));
+
+      TransferContract contract = TransferContract.newBuilder()
+          .setOwnerAddress(ByteString.copyFrom(sender.getAddress()))
+          .setToAddress(ByteString.copyFrom(receiver.getAddress()))
+          .setAmount(1_000_000L + i)
+          .build();
+      TransactionCapsule tx = new TransactionCapsule(contract, dbManager.getAccountStore());
+      tx.setReference(dbManager.getHeadBlockNum(), dbManager.getHeadBlockId().getBytes());
+      tx.setExpiration(headTime + 60_000);
+      tx.sign(sender.getPrivKeyBytes());
+      transactions.add(tx.getInstance());
+    }
+  }
+
+  @AfterClass
+  public static void destroy() {
+    Args.clearParam();
+    context.destroy();
+    FileUtil.deleteDir(new File(dbPath));
+  }
+
+  @Test
+  public void sealedBlockMatchesGeneratedBlock() throws Exception {
+    long when = headTime + ChainConstant.BLOCK_PRODUCED_INTERVAL;
+    Produced generated = produce(false, when);
+    Produced sealed = produce(true, when);
+
+    Assert.assertEquals(SENDERS, generated.block.getTransactions().size());
+    assertSame(generated, sealed);
+    for (TransactionCapsule pushed : sealed.pushed) {
+      Assert.assertEquals(0, pushed.getInstance().getRetCount());
+    }
+  }
+
+  @Test
+  public void droppedSpeculativeBlockLeavesPendingUntouched() throws Exception {
+    // the speculative block is opened for the next slot, the block is generated one slot later
+    long when = headTime + 2 * ChainConstant.BLOCK_PRODUCED_INTERVAL;
+    Produced generated = produce(false, when);
+    Produced dropped = produce(true, when);
+
+    Assert.assertEquals(SENDERS, generated.block.getTransactions().size());
+    assertSame(generated, dropped);
+  }
+
+  private static void assertSame(Produced expected, Produced actual) {
+    Assert.assertArrayEquals(expected.block.getData(), actual.block.getData());
+    Assert.assertArrayEquals(expected.block.getResult().getData(), actual.block.getResult().getData());
+    Assert.assertArrayEquals(expected.stored, actual.stored);
+  }
+
+  /**
+   * Push the transactions and generate the next block, then erase it again.
+   */
+  private static Produced produce(boolean speculative, long when) throws Exception {
+    Args.getInstance().setSpeculativeExecution(speculative);
+    Produced produced = new Produced();
+    try {
+      for (Transaction transaction : transactions) {
+        TransactionCapsule tx = new TransactionCapsule(transaction);
+        produced.pushed.add(tx);
+        dbManager.pushTransaction(tx);
+      }
+      produced.block = dbManager.generateBlock(witness, when, witnessKey.getPrivKeyBytes(),
+          false, false);
+      Assert.assertNotNull(produced.block);
+      produced.stored = dbManager.getTransactionRetStore()
+          .get(ByteArray.fromLong(produced.block.getNum())).getData();
+      logger.info("speculative:{}, block:{}, txs:{}", speculative, produced.block.getBlockId(),
+          produced.block.getTransactions().size());
+    } finally {
+      Args.getInstance().setSpeculativeExecution(false);
+      if (dbManager.getHeadBlockNum() > 1) {
+        dbManager.eraseBlock();
+      }
+      dbManager.getPoppedTransactions().clear();
+      Assert.assertEquals(0, dbManager.getPendingPool().size());
+    }
+    return produced;
+  }
+
+  private static class Produced {
+
+    private BlockCapsule block;
+    private byte[] stored;
+    private final List<TransactionCapsule> pushed = new ArrayList<>();
+  }
+}
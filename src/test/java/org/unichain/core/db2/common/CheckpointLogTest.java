@@ -0,0 +1,197 @@
+package org.unichain.core.db2.common;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.unichain.common.utils.FileUtil;
+import org.unichain.core.db.common.WrappedByteArray;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Replay must return exactly the complete batches, in write order, and cut anything after them.
+ */
+public class CheckpointLogTest {
+
+  private static final String LOG_NAME = "checkpoint.log";
+
+  private final Random random = new Random(20190901L);
+  private Path dir;
+
+  @Before
+  public void init() throws IOException {
+    dir = Files.createTempDirectory("checkpoint-log-test");
+  }
+
+  @After
+  public void destroy() {
+    FileUtil.deleteDir(dir.toFile());
+  }
+
+  @Test
+  public void replayInWriteOrder() throws IOException {
+    List<Map<WrappedByteArray, WrappedByteArray>> batches = new ArrayList<>();
+    batches.add(batch(20, 64));
+    batches.add(new LinkedHashMap<>());
+    batches.add(batch(1, 0));
+    batches.add(batch(50, 300));
+    write(batches);
+
+    assertReplay(batches, batches.size());
+    // a second replay of the same log sees the same batches
+    assertReplay(batches, batches.size());
+  }
+
+  @Test
+  public void truncateDropsTheBatchesFromOffset() throws IOException {
+    CheckpointLog log = new CheckpointLog(dir);
+    log.open();
+    Map<WrappedByteArray, WrappedByteArray> first = batch(5, 32);
+    log.append(first, false);
+    long offset = log.append(batch(5, 32), false);
+    log.truncate(offset);
+    Assert.assertEquals(offset, log.size());
+    log.close();
+
+    assertReplay(Arrays.asList(first), 1);
+  }
+
+  @Test
+  public void tornTailAtEveryOffset() throws IOException {
+    List<Map<WrappedByteArray, WrappedByteArray>> batches = new ArrayList<>();
+    batches.add(batch(3, 16));
+    batches.add(batch(4, 8));
+    batches.add(batch(2, 24));
+    long[] ends = write(batches);
+    byte[] full = Files.readAllBytes(dir.resolve(LOG_NAME));
+    Assert.assertEquals(ends[ends.length - 1], full.length);
+
+    for (int cut = 0; cut <= full.length; cut++) {
+      Files.write(dir.resolve(LOG_NAME), Arrays.copyOf(full, cut));
+      int complete = 0;
+      while (complete < ends.length && ends[complete] <= cut) {
+        complete++;
+      }
+      long kept = complete == 0 ? 0 : ends[complete - 1];
+
+      long size = assertReplay(batches.subList(0, complete), complete);
+      Assert.assertEquals("cut at " + cut, kept, size);
+    }
+  }
+
+  @Test
+  public void checksumMismatchEndsTheReplay() throws IOException {
+    List<Map<WrappedByteArray, WrappedByteArray>> batches = new ArrayList<>();
+    batches.add(batch(3, 16));
+    batches.add(batch(3, 16));
+    batches.add(batch(3, 16));
+    long[] ends = write(batches);
+    byte[] full = Files.readAllBytes(dir.resolve(LOG_NAME));
+
+    // a flipped byte in the entries of the second batch, then in its checksum
+    for (long at : new long[]{ends[1] - 1, ends[0] + 8}) {
+      byte[] corrupt = full.clone();
+      corrupt[(int) at] ^= 0x40;
+      Files.write(dir.resolve(LOG_NAME), corrupt);
+
+      long size = assertReplay(batches.subList(0, 1), 1);
+      Assert.assertEquals(ends[0], size);
+    }
+  }
+
+  @Test
+  public void batchSpanningSeveralChunks() throws IOException {
+    Map<WrappedByteArray, WrappedByteArray> large = new LinkedHashMap<>();
+    // values across the 1MB chunk boundaries, with small entries between them
+    for (int i = 0; i < 3; i++) {
+      large.put(bytes(32), bytes(900 * 1024 + random.nextInt(1024)));
+      large.putAll(batch(100, 100));
+    }
+    List<Map<WrappedByteArray, WrappedByteArray>> batches = new ArrayList<>();
+    batches.add(batch(2, 8));
+    batches.add(large);
+    batches.add(batch(2, 8));
+    long[] ends = write(batches);
+    Assert.assertTrue(ends[1] - ends[0] > 2 << 20);
+
+    assertReplay(batches, batches.size());
+
+    byte[] full = Files.readAllBytes(dir.resolve(LOG_NAME));
+    Files.write(dir.resolve(LOG_NAME), Arrays.copyOf(full, (int) ends[1] - 1));
+    Assert.assertEquals(ends[0], assertReplay(batches.subList(0, 1), 1));
+  }
+
+  /**
+   * Append the batches to a fresh log.
+   *
+   * @return the end offset of every batch
+   */
+  private long[] write(List<Map<WrappedByteArray, WrappedByteArray>> batches) throws IOException {
+    CheckpointLog log = new CheckpointLog(dir);
+    log.open();
+    long[] ends = new long[batches.size()];
+    for (int i = 0; i < batches.size(); i++) {
+      long offset = log.append(batches.get(i), i == batches.size() - 1);
+      Assert.assertEquals(i == 0 ? 0 : ends[i - 1], offset);
+      ends[i] = log.size();
+    }
+    log.close();
+    return ends;
+  }
+
+  /**
+   * Replay the log on disk and compare with the batches expected.
+   *
+   * @return the size of the log after the replay
+   */
+  private long assertReplay(List<Map<WrappedByteArray, WrappedByteArray>> expected, int count)
+      throws IOException {
+    List<byte[]> want = new ArrayList<>();
+    for (Map<WrappedByteArray, WrappedByteArray> batch : expected) {
+      for (Map.Entry<WrappedByteArray, WrappedByteArray> e : batch.entrySet()) {
+        want.add(e.getKey().getBytes());
+        want.add(e.getValue().getBytes());
+      }
+    }
+    List<byte[]> got = new ArrayList<>();
+
+    CheckpointLog log = new CheckpointLog(dir);
+    log.open();
+    try {
+      Assert.assertEquals(count, log.replay((k, v) -> {
+        got.add(k);
+        got.add(v);
+      }));
+      Assert.assertEquals(want.size(), got.size());
+      for (int i = 0; i < want.size(); i++) {
+        Assert.assertArrayEquals(want.get(i), got.get(i));
+      }
+      return log.size();
+    } finally {
+      log.close();
+    }
+  }
+
+  private Map<WrappedByteArray, WrappedByteArray> batch(int entries, int maxValue) {
+    Map<WrappedByteArray, WrappedByteArray> batch = new LinkedHashMap<>();
+    for (int i = 0; i < entries; i++) {
+      batch.put(bytes(1 + random.nextInt(32)), bytes(random.nextInt(maxValue + 1)));
+    }
+    return batch;
+  }
+
+  private WrappedByteArray bytes(int length) {
+    byte[] bytes = new byte[length];
+    random.nextBytes(bytes);
+    return WrappedByteArray.of(bytes);
+  }
+}
@@ -0,0 +1,152 @@
+package org.unichain.core.db2.common;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.unichain.core.db.common.WrappedByteArray;
+import org.unichain.core.db2.common.Value.Operator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Random operations on OpenHashDB against a HashMap holding the same layer.
+ */
+public class OpenHashDBTest {
+
+  private static final int OPERATIONS = 200_000;
+
+  private final Random random = new Random(20190601L);
+
+  @Test
+  public void randomKeys() {
+    List<byte[]> keys = new ArrayList<>();
+    for (int i = 0; i < 3000; i++) {
+      byte[] key = new byte[random.nextInt(40)];
+      random.nextBytes(key);
+      keys.add(key);
+    }
+    check(keys);
+  }
+
+  @Test
+  public void collidingKeys() {
+    // four byte keys with the same Arrays.hashCode, so with the same full hash
+    List<byte[]> keys = new ArrayList<>();
+    for (int a = -128; a < 128; a++) {
+      for (int b = -128; b < 128; b++) {
+        for (int c = -128; c < 128; c++) {
+          int d = 1000 - 31 * 31 * 31 * a - 31 * 31 * b - 31 * c;
+          if (d >= -128 && d < 128) {
+            keys.add(new byte[]{(byte) a, (byte) b, (byte) c, (byte) d});
+          }
+        }
+      }
+    }
+    Assert.assertTrue(keys.size() > 500);
+    for (byte[] key : keys) {
+      Assert.assertEquals(OpenHashDB.hash(keys.get(0)), OpenHashDB.hash(key));
+    }
+    check(keys);
+  }
+
+  @Test
+  public void keysSharingTableSlots() {
+    // different hashes with equal low bits, so they probe the same slots up to 4096 slots
+    List<byte[]> keys = new ArrayList<>();
+    for (int i = 0; keys.size() < 500; i++) {
+      byte[] key = new byte[]{(byte) (i >>> 16), (byte) (i >>> 8), (byte) i};
+      if ((OpenHashDB.hash(key) & 0xfff) == 0x123) {
+        keys.add(key);
+      }
+    }
+    check(keys);
+  }
+
+  @Test
+  public void growAndShrink() {
+    OpenHashDB db = new OpenHashDB();
+    Map<WrappedByteArray, Value> model = new HashMap<>();
+    for (int round = 0; round < 5; round++) {
+      for (int i = 0; i < 20_000; i++) {
+        byte[] key = ("key" + i).getBytes();
+        Value value = Value.of(Operator.PUT, ("value" + round + "-" + i).getBytes());
+        db.put(Key.of(key), value);
+        model.put(WrappedByteArray.of(key), value);
+      }
+      assertSame(model, db);
+      for (int i = 0; i < 20_000; i += 1 + round) {
+        byte[] key = ("key" + i).getBytes();
+        db.remove(Key.of(key));
+        model.remove(WrappedByteArray.of(key));
+      }
+      assertSame(model, db);
+    }
+  }
+
+  private void check(List<byte[]> keys) {
+    OpenHashDB db = new OpenHashDB();
+    Map<WrappedByteArray, Value> model = new HashMap<>();
+    for (int i = 0; i < OPERATIONS; i++) {
+      byte[] key = keys.get(random.nextInt(keys.size())).clone();
+      int operation = random.nextInt(10);
+      if (operation < 5) {
+        Value value = randomValue();
+        db.put(Key.of(key), value);
+        model.put(WrappedByteArray.of(key), value);
+      } else if (operation < 8) {
+        db.remove(Key.of(key));
+        model.remove(WrappedByteArray.of(key));
+      } else {
+        assertValue(model.get(WrappedByteArray.of(key)), db.get(Key.of(key)));
+      }
+      Assert.assertEquals(model.size(), db.size());
+      if (i % 10_000 == 0) {
+        assertSame(model, db);
+      }
+    }
+    assertSame(model, db);
+  }
+
+  private Value randomValue() {
+    Operator operator = Operator.values()[random.nextInt(Operator.values().length)];
+    if (random.nextInt(8) == 0) {
+      return Value.of(operator, null);
+    }
+    byte[] bytes = new byte[random.nextInt(random.nextInt(8) == 0 ? 6000 : 64)];
+    random.nextBytes(bytes);
+    return Value.of(operator, bytes);
+  }
+
+  private static void assertSame(Map<WrappedByteArray, Value> model, OpenHashDB db) {
+    Assert.assertEquals(model.size(), db.size());
+    Assert.assertEquals(model.isEmpty(), db.isEmpty());
+    int iterated = 0;
+    for (Map.Entry<Key, Value> e : db) {
+      Value expected = model.get(WrappedByteArray.of(e.getKey().getBytes()));
+      Assert.assertNotNull(expected);
+      assertValue(expected, e.getValue());
+      iterated++;
+    }
+    Assert.assertEquals(model.size(), iterated);
+    for (Map.Entry<WrappedByteArray, Value> e : model.entrySet()) {
+      byte[] key = e.getKey().getBytes();
+      assertValue(e.getValue(), db.get(Key.of(key)));
+      int slot = db.find(key, OpenHashDB.hash(key));
+      Assert.assertTrue(slot >= 0);
+      Assert.assertArrayEquals(e.getValue().getBytes(), db.valueAt(slot));
+    }
+  }
+
+  private static void assertValue(Value expected, Value actual) {
+    if (expected == null) {
+      Assert.assertNull(actual);
+      return;
+    }
+    Assert.assertNotNull(actual);
+    Assert.assertEquals(expected.getOperator(), actual.getOperator());
+    Assert.assertArrayEquals(expected.getBytes(), actual.getBytes());
+  }
+}